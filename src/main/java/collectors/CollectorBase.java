@@ -1,6 +1,9 @@
 package collectors;
 
-public class CollectorBase {
+import java.io.Serializable;
+
+public class CollectorBase implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private boolean active = false;
 
@@ -1,8 +1,7 @@
 package collectors;
 
 import housing.Config;
-import housing.Model;
-import utilities.MeanAboveMedian;
+import housing.SimulationContext;
 
 /**************************************************************************************************
  * Class to collect the information contained in the Bank of England "Core Indicators" set for LTV
@@ -19,7 +18,19 @@ public class CoreIndicators extends CollectorBase {
     //----- Fields -----//
     //------------------//
 
-	private Config config = Model.config;	// Passes the Model's configuration parameters object to a private field
+	private static final long serialVersionUID = 1L;
+
+	private Config config;	// Passes the context's configuration parameters object to a private field
+	private SimulationContext context;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+	public CoreIndicators(SimulationContext context) {
+		this.context = context;
+		this.config = context.config;
+	}
 
     //-------------------//
     //----- Methods -----//
@@ -30,18 +41,22 @@ public class CoreIndicators extends CollectorBase {
     // Note that some of these methods are just wrappers around methods contained in other classes with the purpose of
     // storing here a coherent set of core indicators getters
 	
+	// Activating the core indicators activates the collectors they are computed from, while deactivating them leaves
+	// those collectors as they are, since other indicators may still need them
 	@Override
 	public void setActive(boolean active) {
 		super.setActive(active);
-		Model.creditSupply.setActive(active);
-		Model.housingMarketStats.setActive(active);
-		Model.householdStats.setActive(active);
+		if (active) {
+			context.creditSupply.setActive(true);
+			context.housingMarketStats.setActive(true);
+			context.householdStats.setActive(true);
+		}
     }
 
     // Owner-occupier mortgage LTI ratio (mean above the median)
 	public double getOwnerOccupierLTIMeanAboveMedian() {
-        if (Model.creditSupply.oo_lti.getN() > 0) {
-            return Model.creditSupply.oo_lti.apply(new MeanAboveMedian());
+        if (context.creditSupply.oo_lti.getN() > 0) {
+            return context.creditSupply.oo_lti.getMeanAboveMedian();
         } else {
             return 0.0;
         }
@@ -49,8 +64,8 @@ public class CoreIndicators extends CollectorBase {
 
     // Owner-occupier mortage LTV ratio (mean above the median)
 	public double getOwnerOccupierLTVMeanAboveMedian() {
-        if (Model.creditSupply.oo_ltv.getN() > 0) {
-            return Model.creditSupply.oo_ltv.apply(new MeanAboveMedian());
+        if (context.creditSupply.oo_ltv.getN() > 0) {
+            return context.creditSupply.oo_ltv.getMeanAboveMedian();
         } else {
             return 0.0;
         }
@@ -58,8 +73,8 @@ public class CoreIndicators extends CollectorBase {
 
     // Buy-to-let loan-to-value ratio (mean)
 	public double getBuyToLetLTVMean() {
-        if (Model.creditSupply.btl_ltv.getN() > 0) {
-            return Model.creditSupply.btl_ltv.getMean();
+        if (context.creditSupply.btl_ltv.getN() > 0) {
+            return context.creditSupply.btl_ltv.getMean();
         } else {
             return 0.0;
         }
@@ -67,8 +82,8 @@ public class CoreIndicators extends CollectorBase {
 	
     // OO loan-to-value ratio (mean)
 	public double getOwnerOccupierLTVMean() {
-        if (Model.creditSupply.oo_ltv.getN() > 0) {
-            return Model.creditSupply.oo_ltv.getMean();
+        if (context.creditSupply.oo_ltv.getN() > 0) {
+            return context.creditSupply.oo_ltv.getMean();
         } else {
             return 0.0;
         }
@@ -76,44 +91,44 @@ public class CoreIndicators extends CollectorBase {
 
 	// Annualised household credit growth (credit growth: rate of change of credit, current month new credit divided by
     //  new credit in previous step)
-	public double getHouseholdCreditGrowth() { return Model.creditSupply.netCreditGrowth*12.0*100.0; }
+	public double getHouseholdCreditGrowth() { return context.creditSupply.netCreditGrowth*12.0*100.0; }
 
 	// Household mortgage debt to income ratio (%)
 	public double getDebtToIncome() {
-		return 100.0*(Model.creditSupply.totalBTLCredit + Model.creditSupply.totalOOCredit)
-                /(Model.householdStats.getOwnerOccupierAnnualisedTotalIncome()
-                + Model.householdStats.getActiveBTLAnnualisedTotalIncome()
-                + Model.householdStats.getNonOwnerAnnualisedTotalIncome());
+		return 100.0*(context.creditSupply.totalBTLCredit + context.creditSupply.totalOOCredit)
+                /(context.householdStats.getOwnerOccupierAnnualisedTotalIncome()
+                + context.householdStats.getActiveBTLAnnualisedTotalIncome()
+                + context.householdStats.getNonOwnerAnnualisedTotalIncome());
 	}
 
 	// Household debt to income ratio (owner-occupier mortgages only) (%)
 	public double getOODebtToIncome() {
-        return 100.0*Model.creditSupply.totalOOCredit/Model.householdStats.getOwnerOccupierAnnualisedTotalIncome();
+        return 100.0*context.creditSupply.totalOOCredit/context.householdStats.getOwnerOccupierAnnualisedTotalIncome();
     }
 
 	// Number of mortgage approvals per month (scaled for 26.5 million households)
 	public int getMortgageApprovals() {
-		//return (int)(Model.creditSupply.nApprovedMortgages*config.getUKHouseholds()
-        //        /Model.households.size());
-		return (int)(Model.creditSupply.nApprovedMortgages);
+		//return (int)(context.creditSupply.nApprovedMortgages*config.getUKHouseholds()
+        //        /context.households.size());
+		return (int)(context.creditSupply.nApprovedMortgages);
 	}
 
     // Number of houses bought/sold per month (scaled for 26.5 million households)
 	public int getHousingTransactions() {
-		return (int)(Model.housingMarketStats.getnSales()*config.getUKHouseholds()
-                /Model.households.size());
+		return (int)(context.housingMarketStats.getnSales()*config.getUKHouseholds()
+                /context.households.size());
 	}
 
 	// Number of advances to first-time-buyers (scaled for 26.5 million households)
 	public int getAdvancesToFTBs() {
-		return (int)(Model.creditSupply.nFTBMortgages*config.getUKHouseholds()
-                /Model.households.size());
+		return (int)(context.creditSupply.nFTBMortgages*config.getUKHouseholds()
+                /context.households.size());
 	}
 
     // Number of advances to buy-to-let purchasers (scaled for 26.5 million households)
 	public int getAdvancesToBTL() {
-		return (int)(Model.creditSupply.nBTLMortgages*config.getUKHouseholds()
-                /Model.households.size());
+		return (int)(context.creditSupply.nBTLMortgages*config.getUKHouseholds()
+                /context.households.size());
 	}
 
 	// Number of advances to home-movers (scaled for 26.5 million households)
@@ -123,22 +138,22 @@ public class CoreIndicators extends CollectorBase {
     // TODO: ATTENTION ---> Gross total income is used here, not disposable income! Post-tax income should be used!
 	public double getPriceToIncome() {
 	    // TODO: Also, why to use HPI*HPIReference? Why not average house price?
-		return(Model.housingMarketStats.getHPI()*config.derivedParams.getHPIReference()
-				*(Model.households.size()
-                - Model.householdStats.getnRenting()
-                - Model.householdStats.getnHomeless())
-                /(Model.householdStats.getOwnerOccupierAnnualisedTotalIncome()
-                + Model.householdStats.getActiveBTLAnnualisedTotalIncome()));
+		return(context.housingMarketStats.getHPI()*config.derivedParams.getHPIReference()
+				*(context.households.size()
+                - context.householdStats.getnRenting()
+                - context.householdStats.getnHomeless())
+                /(context.householdStats.getOwnerOccupierAnnualisedTotalIncome()
+                + context.householdStats.getActiveBTLAnnualisedTotalIncome()));
 		// TODO: Finally, for security, population count should be made with nActiveBTL and nOwnerOccupier
 	}
 
 	// Wrapper around the HouseHoldStats method, which computes the average stock gross rental yield for all currently
     // occupied rental properties (%)
-	public double getAvStockYield() { return 100.0*Model.householdStats.getAvStockYield(); }
+	public double getAvStockYield() { return 100.0*context.householdStats.getAvStockYield(); }
 
 	// Wrapper around the HousingMarketStats method, which computes the quarter on quarter appreciation in HPI
-	public double getQoQHousePriceGrowth() { return Model.housingMarketStats.getQoQHousePriceGrowth(); }
+	public double getQoQHousePriceGrowth() { return context.housingMarketStats.getQoQHousePriceGrowth(); }
 
 	// Spread between mortgage-lender interest rate and bank base-rate (%)
-	public double getInterestRateSpread() { return 100.0*Model.bank.interestSpread; }
+	public double getInterestRateSpread() { return 100.0*context.bank.interestSpread; }
 }
@@ -5,13 +5,17 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 
 import housing.*;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import utilities.SlidingWindowStatistics;
 
 public class CreditSupply extends CollectorBase {
+	private static final long serialVersionUID = 1L;
 
-	private Config config = Model.config;	// Passes the Model's configuration parameters object to a private field
+	private Config config;	// Passes the context's configuration parameters object to a private field
+	private SimulationContext context;
 
-	public CreditSupply(String outputFolder) {
+	public CreditSupply(SimulationContext context, String outputFolder) {
+		this.context = context;
+		this.config = context.config;
 	    outputFolderCopy = outputFolder;
 		mortgageCounter = 0;
 		ftbCounter = 0;
@@ -43,26 +47,13 @@ public class CreditSupply extends CollectorBase {
 	 */
 	public void step() {
         double oldTotalCredit = totalOOCredit + totalBTLCredit;
-        totalOOCredit = 0.0;
-        totalBTLCredit = 0.0;
+        totalBTLCredit = context.bank.mortgages.getTotalBTLPrincipal();
+        totalOOCredit = context.bank.mortgages.getTotalOOPrincipal();
         
-        //GC:
-        dtiBorrowers = 0.0;
-        ltvBorrowers = 0.0;
-        //GC: END
-        
-        for(MortgageAgreement m : Model.bank.mortgages) {
-        	if(m.isBuyToLet) {
-            	totalBTLCredit += m.principal;
-        	} else {
-        		totalOOCredit += m.principal;
-        	}
-        	
-        	// GC:
-        	dtiBorrowers += m.dti;
-        	ltvBorrowers += m.ltv;
-        	// GC: END
-        }
+        // GC:
+        dtiBorrowers = context.bank.mortgages.getTotalDti();
+        ltvBorrowers = context.bank.mortgages.getTotalLtv();
+        // GC: END
         if (oldTotalCredit > 0.0) {
             netCreditGrowth = (totalOOCredit + totalBTLCredit - oldTotalCredit)/oldTotalCredit;
         } else {
@@ -93,8 +84,8 @@ public class CreditSupply extends CollectorBase {
         }
         ooDSRcounter = 0.0;
         btlDSRcounter = 0.0;
-        dtiBorrowers /= Model.bank.mortgages.size();
-        ltvBorrowers /= Model.bank.mortgages.size();
+        dtiBorrowers /= context.bank.mortgages.size();
+        ltvBorrowers /= context.bank.mortgages.size();
         
 		for (int i = 0; i<config.N_QUALITY; i++)
 		{
@@ -132,8 +123,8 @@ public class CreditSupply extends CollectorBase {
 			if(approval.principal > 0.0) {
 				if(approval.isBuyToLet) {
 					btl_ltv.addValue(100.0*approval.principal/housePrice);
-					double icr = Model.rentalMarketStats.getExpAvFlowYield()*approval.purchasePrice/
-                            (approval.principal*Model.centralBank.getInterestCoverRatioStressedRate(false));
+					double icr = context.rentalMarketStats.getExpAvFlowYield()*approval.purchasePrice/
+                            (approval.principal*context.centralBank.getInterestCoverRatioStressedRate(false));
 					btl_icr.addValue(icr);
 					
 					//GC:
@@ -154,11 +145,6 @@ public class CreditSupply extends CollectorBase {
 			if(approval.isFirstTimeBuyer) ftbCounter += 1;
 			if(approval.isBuyToLet) btlCounter += 1;
 			
-			//GC:
-			approval.dti = ( approval.principal ) / ( h.getAnnualGrossEmploymentIncome() );
-			approval.ltv = ( approval.principal ) / ( housePrice );
-			//GC: END
-			
 			if(approval.principal > 0.0)
 			{
 				int quality = house.getQuality();
@@ -197,7 +183,7 @@ public class CreditSupply extends CollectorBase {
     }
     
 
-    public int getnRegisteredMortgages() { return(Model.bank.mortgages.size()); }
+    public int getnRegisteredMortgages() { return(context.bank.mortgages.size()); }
 
 	public int getArchiveLength() {
 		return archiveLength;
@@ -217,11 +203,11 @@ public class CreditSupply extends CollectorBase {
 
 	public void setArchiveLength(int archiveLength) {
 		this.archiveLength = archiveLength;
-		oo_lti = new DescriptiveStatistics(archiveLength);
-		oo_ltv = new DescriptiveStatistics(archiveLength);
-		btl_ltv = new DescriptiveStatistics(archiveLength);
-		btl_icr = new DescriptiveStatistics(archiveLength);
-		downpayments = new DescriptiveStatistics(archiveLength);
+		oo_lti = new SlidingWindowStatistics(archiveLength);
+		oo_ltv = new SlidingWindowStatistics(archiveLength);
+		btl_ltv = new SlidingWindowStatistics(archiveLength);
+		btl_icr = new SlidingWindowStatistics(archiveLength);
+		downpayments = new SlidingWindowStatistics(archiveLength);
 	}
 	
     //GC:
@@ -299,11 +285,13 @@ public class CreditSupply extends CollectorBase {
 	private double[] mortgageNByQuality;
 	// END GC
 	
-	public DescriptiveStatistics oo_lti;
-	public DescriptiveStatistics oo_ltv;
-	public DescriptiveStatistics btl_ltv;
-	public DescriptiveStatistics btl_icr;
-	public DescriptiveStatistics downpayments; // TODO: This quantity only includes downpayments when the principal of the loan is > 0
+	// Windows of the last archiveLength values, each one keeping its values ordered as they are added, so that medians
+	// and means above the median can be computed at every step without sorting the whole window
+	public SlidingWindowStatistics oo_lti;
+	public SlidingWindowStatistics oo_ltv;
+	public SlidingWindowStatistics btl_ltv;
+	public SlidingWindowStatistics btl_icr;
+	public SlidingWindowStatistics downpayments; // TODO: This quantity only includes downpayments when the principal of the loan is > 0
 	public int mortgageCounter;
 	public int ftbCounter;	
 	public int btlCounter;	
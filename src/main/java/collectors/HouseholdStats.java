@@ -2,7 +2,7 @@ package collectors;
 
 import housing.Config;
 import housing.Household;
-import housing.Model;
+import housing.SimulationContext;
 
 /**************************************************************************************************
  * Class to collect regional household statistics
@@ -16,8 +16,11 @@ public class HouseholdStats extends CollectorBase {
 	//----- Fields -----//
 	//------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	// General fields
-	private Config  config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private Config              config; // Passes the context's configuration parameters object to a private field
+	private SimulationContext   context;
 
 	// Fields for counting numbers of the different types of households and household conditions
 	private int     nBTL; // Number of buy-to-let (BTL) households, i.e., households with the BTL gene (includes both active and inactive)
@@ -61,7 +64,11 @@ public class HouseholdStats extends CollectorBase {
     /**
      * Initialises the household statistics collector
      */
-    public HouseholdStats() { setActive(true); }
+    public HouseholdStats(SimulationContext context) {
+        this.context = context;
+        this.config = context.config;
+        setActive(true);
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -131,7 +138,7 @@ public class HouseholdStats extends CollectorBase {
         // GC: END
         
         // Run through all households counting population in each type and summing their gross incomes
-        for (Household h : Model.households) {
+        for (Household h : context.households) {
             if (h.behaviour.isPropertyInvestor()) {
                 ++nBTL;
                 bankBalBTL += h.getBankBalance();
@@ -168,10 +175,10 @@ public class HouseholdStats extends CollectorBase {
                 } else if (h.isRenting()) {
                     ++nRenting;
                     rentingAnnualisedTotalIncome += h.getMonthlyGrossTotalIncome();
-                    if (Model.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality()) > 0) {
+                    if (context.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality()) > 0) {
                         sumStockYield += h.getHousePayments().get(h.getHome()).monthlyPayment
                                 *config.constants.MONTHS_IN_YEAR
-                                /Model.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality());
+                                /context.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality());
                     }
                     bankBalRent += h.getBankBalance();
                     // Non-BTL investors in social housing
@@ -204,7 +211,7 @@ public class HouseholdStats extends CollectorBase {
      * moving average sale price
      */
     public void countNonBTLBidsAboveExpAvSalePrice(double price) {
-        if (price >= Model.housingMarketStats.getExpAvSalePriceForQuality(0)) {
+        if (price >= context.housingMarketStats.getExpAvSalePriceForQuality(0)) {
             nNonBTLBidsAboveExpAvSalePriceCounter++;
         }
     }
@@ -214,7 +221,7 @@ public class HouseholdStats extends CollectorBase {
      * sale price
      */
     public void countBTLBidsAboveExpAvSalePrice(double price) {
-        if (price >= Model.housingMarketStats.getExpAvSalePriceForQuality(0)) {
+        if (price >= context.housingMarketStats.getExpAvSalePriceForQuality(0)) {
             nBTLBidsAboveExpAvSalePriceCounter++;
         }
     }
@@ -262,13 +269,13 @@ public class HouseholdStats extends CollectorBase {
     // Getters for other variables...
     // ... number of empty houses (total number of houses minus number of non-homeless households)
     public int getnEmptyHouses() {
-        return Model.construction.getHousingStock() + nBTLHomeless + nNonBTLHomeless - Model.households.size();
+        return context.construction.getHousingStock() + nBTLHomeless + nNonBTLHomeless - context.households.size();
     }
     // ... proportion of housing stock owned by buy-to-let investors (all rental properties, plus all empty houses not
     // owned by the construction sector)
     public double getBTLStockFraction() {
-        return ((double)(getnEmptyHouses() - Model.housingMarketStats.getnUnsoldNewBuild()
-                + nRenting))/Model.construction.getHousingStock();
+        return ((double)(getnEmptyHouses() - context.housingMarketStats.getnUnsoldNewBuild()
+                + nRenting))/context.construction.getHousingStock();
     }
     // ... number of normal (non-BTL) bidders with desired housing expenditure above the exponential moving average sale price
     public int getnNonBTLBidsAboveExpAvSalePrice() { return nNonBTLBidsAboveExpAvSalePrice; }
@@ -3,6 +3,8 @@ package collectors;
 import housing.*;
 import utilities.PriorityQueue2D;
 
+import java.util.Arrays;
+
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
 /**************************************************************************************************
@@ -11,15 +13,18 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class HousingMarketStats extends CollectorBase {
+public class HousingMarketStats extends CollectorBase implements OfferBook.Listener {
 
 	//------------------//
 	//----- Fields -----//
 	//------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	// General fields
 	private HousingMarket           market; // Declared HousingMarket so that it can accommodate both sale and rental markets
-	private Config                  config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private Config                  config; // Passes the context's configuration parameters object to a private field
+	private SimulationContext       context;
 
 	// Variables computed at initialisation
 	double []                       referencePricePerQuality;
@@ -32,8 +37,15 @@ public class HousingMarketStats extends CollectorBase {
     private int                     nBTLSellers;
 	private double                  sumBidPrices;
 	private double                  sumOfferPrices;
-	private double []               offerPrices;
-	private double []               bidPrices;
+	private double []               bidPrices; // Grow-only buffer, with the prices of the current bids in its first nBuyers positions
+
+	// Aggregates of the offers on the market, kept up to date as offers are added, repriced and removed
+	private int                     newSellersTime; // Time of listing of the most recent offers
+	private int                     nNewSellersCount; // Number of offers on the market listed at time newSellersTime
+	private int                     nBTLSellersCount; // Number of offers on the market by BTL investors
+	private int                     nUnsoldNewBuildCount; // Number of offers on the market by the construction sector
+	private double []               sumOfferPricePerQuality; // Sum of the prices of the offers on the market, per quality band
+	private double []               sumOfferPriceErrorPerQuality; // Rounding error lost from each of those sums, to compensate it
 
 	// Variables computed during market clearing, counters
 	private int                     salesCount; // Dummy variable to count sales
@@ -81,28 +93,22 @@ public class HousingMarketStats extends CollectorBase {
 	/**
 	 * Initialises the regional sale market statistics collector
 	 *
+	 * @param context Simulation context this collector belongs to
 	 * @param market Reference to the sale or rental market of the region, depending on being called as a constructor
 	 *               for this class or as part of the construction of a RegionalRentalMarketStats
 	 */
-	public HousingMarketStats(HousingMarket market) {
+	public HousingMarketStats(SimulationContext context, HousingMarket market) {
+		this.context = context;
+		this.config = context.config;
 		setActive(true);
 		this.market = market;
 		referencePricePerQuality = new double[config.N_QUALITY];
-		
-		
-		//GC: this updates the static references in the data.HouseSaleMarket class
-		//GC: otherwise it won't update the N.QUALITY param in that class
-		data.HouseSaleMarket.updateConfigFile(config);
-		data.HouseSaleMarket.updateRefPrice();
-		
-		//System.out.println(config.N_QUALITY + " HMS constructor");
-		
-		//GC: END
-		
-		
-		System.arraycopy(data.HouseSaleMarket.getReferencePricePerQuality(), 0, referencePricePerQuality, 0,
+		System.arraycopy(context.houseSaleMarketData.getReferencePricePerQuality(), 0, referencePricePerQuality, 0,
 				config.N_QUALITY); // Copies reference prices from data/HouseSaleMarket into referencePricePerQuality
 		HPIRecord = new DescriptiveStatistics(config.derivedParams.HPI_RECORD_LENGTH);
+		sumOfferPricePerQuality = new double[config.N_QUALITY];
+		sumOfferPriceErrorPerQuality = new double[config.N_QUALITY];
+		market.getOffersPQ().setListener(this);
 	}
 
     //-------------------//
@@ -121,8 +127,14 @@ public class HousingMarketStats extends CollectorBase {
         nUnsoldNewBuild = 0;
         sumBidPrices = 0.0;
         sumOfferPrices = 0.0;
-        offerPrices = new double[nSellers];
         bidPrices = new double[nBuyers];
+        // Set zero initial value for the aggregates of the offers on the market, which is assumed to be empty
+        newSellersTime = -1;
+        nNewSellersCount = 0;
+        nBTLSellersCount = 0;
+        nUnsoldNewBuildCount = 0;
+        Arrays.fill(sumOfferPricePerQuality, 0.0);
+        Arrays.fill(sumOfferPriceErrorPerQuality, 0.0);
 
         // Set zero initial value for persistent variables whose count is computed during market clearing
         nSales = 0;
@@ -133,6 +145,8 @@ public class HousingMarketStats extends CollectorBase {
         sumDaysOnMarket = 0;
         sumSalePricePerQuality = new double[config.N_QUALITY];
         nSalesPerQuality = new int[config.N_QUALITY];
+        sumSalePricePerQualityCount = new double[config.N_QUALITY];
+        nSalesPerQualityCount = new int[config.N_QUALITY];
         //GC:
         sumSalePricePerQualityPrev = new double[config.N_QUALITY];
         nSalesPerQualityPrev = new int[config.N_QUALITY];
@@ -174,7 +188,9 @@ public class HousingMarketStats extends CollectorBase {
     //----- Pre-market-clearing methods -----//
 
     /**
-     * Computes pre-clearing statistics and resets counters to zero
+     * Computes pre-clearing statistics and resets counters to zero. Bids are traversed in a single pass, which writes
+     * their prices into a buffer reused from month to month, while offer statistics are computed from aggregates per
+     * quality band, without traversing the offers
      */
     public void preClearingRecord() {
         // Re-initialise to zero variables to be computed later on, during market clearing, counters
@@ -204,41 +220,23 @@ public class HousingMarketStats extends CollectorBase {
         	avgBuyOffersPerQualityQuartile[i] = 0;
         }
         //GC: end
-        sumSalePricePerQualityCount = new double[config.N_QUALITY];
-        nSalesPerQualityCount = new int[config.N_QUALITY];
+        Arrays.fill(sumSalePricePerQualityCount, 0.0);
+        Arrays.fill(nSalesPerQualityCount, 0);
 
         // Re-initialise to zero variables computed before market clearing
         nBuyers = market.getBids().size();
         nBTLBuyers = 0;
-        for (HouseBidderRecord bid: market.getBids()) {
-            if (bid.getBidder().behaviour.isPropertyInvestor() && bid.getBidder().getHome() != null) {
-                nBTLBuyers++;
-            }
-        }
         nSellers = market.getOffersPQ().size();
-        nNewSellers = 0;
-        nBTLSellers = 0;
-        for (HousingMarketRecord element: market.getOffersPQ()) {
-            HouseOfferRecord offer = (HouseOfferRecord)element;
-            if (offer.gettInitialListing() == Model.getTime()) {
-                nNewSellers++;
-            }
-            if (offer.getHouse().owner != Model.construction) {
-                Household h = (Household) offer.getHouse().owner;
-                if (h.behaviour.isPropertyInvestor()) {
-                    nBTLSellers++;
-                }
-            }
-        }
         sumBidPrices = 0.0;
         sumOfferPrices = 0.0;
-        offerPrices = new double[nSellers];
-        bidPrices = new double[nBuyers];
-
+        if (bidPrices.length < nBuyers) bidPrices = new double[Math.max(nBuyers, 2*bidPrices.length)];
 
-        // Record bid prices and their average
+        // Record bid prices, their average, and the number of BTL buyers
         int i = 0;
         for(HouseBidderRecord bid : market.getBids()) {
+            if (bid.getBidder().behaviour.isPropertyInvestor() && bid.getBidder().getHome() != null) {
+                nBTLBuyers++;
+            }
             sumBidPrices += bid.getPrice();
             bidPrices[i] = bid.getPrice();
             ++i;
@@ -246,42 +244,27 @@ public class HousingMarketStats extends CollectorBase {
             //if (bid.getPrice() < 0) System.out.println(bid.getPrice() + " " + bid.getQuality() + " " + bid.getBidder().id + " " + bid.getBidder().targetHouseQuality + " " + bid.getBidder().behaviour.isPropertyInvestor());
         }
 
-        // Record offer prices, their average, and the number of empty and new houses
-        i = 0;
-        for(HousingMarketRecord sale : market.getOffersPQ()) {
-            sumOfferPrices += sale.getPrice();
-            offerPrices[i] = sale.getPrice();
-            ++i;
+        // Take the number of new and BTL sellers from the aggregates kept up to date as offers come and go, and
+        // compute the sum of offer prices and, per quality quartile, the number, minimum, maximum and average of offer
+        // prices from those of each quality band
+        nNewSellers = (newSellersTime == context.getTime()) ? nNewSellersCount : 0;
+        nBTLSellers = nBTLSellersCount;
+        OfferBook offers = market.getOffersPQ();
+        for (int q = 0; q < config.N_QUALITY; q++) {
+            if (offers.size(q) == 0) continue;
+            double sumOfferPrice = sumOfferPricePerQuality[q] + sumOfferPriceErrorPerQuality[q];
+            sumOfferPrices += sumOfferPrice;
+            // GC: start
+            int QualityQuartile = (int)(((double)q/(double)config.N_QUALITY)*4);
+            nSaleOffersPerQualityQuartile[QualityQuartile] += offers.size(q);
+            minSaleOffersPerQualityQuartile[QualityQuartile] = Math.min(minSaleOffersPerQualityQuartile[QualityQuartile],
+                    offers.getMinPrice(q));
+            maxSaleOffersPerQualityQuartile[QualityQuartile] = Math.max(maxSaleOffersPerQualityQuartile[QualityQuartile],
+                    offers.getMaxPrice(q));
+            avgSaleOffersPerQualityQuartile[QualityQuartile] += sumOfferPrice;
+            // GC: end
         }
-        
-        
         // GC: start
-        // Record num of offers
-        for(HousingMarketRecord element : market.getOffersPQ())
-        {
-        	HouseOfferRecord offer = (HouseOfferRecord)element;
-        	double price = offer.getPrice();
-        	int QualityQuartile = (int)(((double)offer.getQuality()/(double)config.N_QUALITY)*4);
-        	
-        	// increase counter
-        	nSaleOffersPerQualityQuartile[QualityQuartile]++;
-        	
-        	// update temp min 
-        	if (price < minSaleOffersPerQualityQuartile[QualityQuartile])  		
-        	{
-        		minSaleOffersPerQualityQuartile[QualityQuartile] = price;
-        		//System.out.println(minSaleOffersPerQualityQuartile[QualityQuartile]);
-        	}
-        	
-        	// update temp max
-        	if (price > maxSaleOffersPerQualityQuartile[QualityQuartile])  		
-        	{
-        		maxSaleOffersPerQualityQuartile[QualityQuartile] = price;
-        	}
-        	
-        	// update temp avg
-        	avgSaleOffersPerQualityQuartile[QualityQuartile] += price;
-        }
         // compute avg
         for(i = 0; i < 4; i++)
         {
@@ -331,8 +314,7 @@ public class HousingMarketStats extends CollectorBase {
                 btlSalesCount += 1;
             }
         }
-        // TODO: Attention, calls to Model class should be avoided: need to pass transactionRecorder as constructor arg
-        Model.transactionRecorder.recordSale(purchase, sale, mortgage, market);
+        context.transactionRecorder.recordSale(purchase, sale, mortgage, market);
     }
 
     /**
@@ -342,7 +324,7 @@ public class HousingMarketStats extends CollectorBase {
      * @param sale The HouseOfferRecord of the house being sold
      */
     public void recordTransaction(HouseOfferRecord sale) {
-        sumDaysOnMarketCount += config.constants.DAYS_IN_MONTH*(Model.getTime() - sale.gettInitialListing());
+        sumDaysOnMarketCount += config.constants.DAYS_IN_MONTH*(context.getTime() - sale.gettInitialListing());
         sumSalePricePerQualityCount[sale.getQuality()] += sale.getPrice();
         nSalesPerQualityCount[sale.getQuality()]++;
         sumSoldReferencePriceCount += referencePricePerQuality[sale.getQuality()];
@@ -393,9 +375,76 @@ public class HousingMarketStats extends CollectorBase {
                     + (1.0 - config.MARKET_AVERAGE_PRICE_DECAY)*(housePriceIndex*referencePricePerQuality[q]);
         }
         // ...record number of unsold new build houses
-        nUnsoldNewBuild = 0;
-        for(HousingMarketRecord sale : market.getOffersPQ()) {
-            if(((HouseOfferRecord) sale).getHouse().owner == Model.construction) nUnsoldNewBuild++;
+        nUnsoldNewBuild = nUnsoldNewBuildCount;
+    }
+
+    //----- Offer book listener methods -----//
+
+    /**
+     * Update the aggregates of the offers on the market with a new offer
+     */
+    @Override
+    public void offerAdded(HouseOfferRecord offer) {
+        if (offer.gettInitialListing() != newSellersTime) {
+            newSellersTime = offer.gettInitialListing();
+            nNewSellersCount = 0;
+        }
+        nNewSellersCount++;
+        countSeller(offer, 1);
+        addToOfferPriceSum(offer.getQuality(), offer.getPrice());
+    }
+
+    /**
+     * Update the aggregates of the offers on the market with the new price of an offer
+     */
+    @Override
+    public void offerRepriced(HouseOfferRecord offer, double oldPrice) {
+        addToOfferPriceSum(offer.getQuality(), offer.getPrice());
+        addToOfferPriceSum(offer.getQuality(), -oldPrice);
+    }
+
+    /**
+     * Remove an offer from the aggregates of the offers on the market, resetting the sum of prices of its quality band
+     * to exactly zero if it is left empty, so that rounding errors do not build up over time
+     */
+    @Override
+    public void offerRemoved(HouseOfferRecord offer) {
+        if (offer.gettInitialListing() == newSellersTime) nNewSellersCount--;
+        countSeller(offer, -1);
+        int q = offer.getQuality();
+        if (market.getOffersPQ().size(q) == 0) {
+            sumOfferPricePerQuality[q] = 0.0;
+            sumOfferPriceErrorPerQuality[q] = 0.0;
+        } else {
+            addToOfferPriceSum(q, -offer.getPrice());
+        }
+    }
+
+    /**
+     * Add price to the sum of offer prices of quality band q, keeping track of the rounding error of the addition
+     * (Neumaier's compensated summation) so that, as prices are added and removed over thousands of months, the sum
+     * stays as close to that of the offers currently on the market as if it were recomputed from scratch
+     */
+    private void addToOfferPriceSum(int q, double price) {
+        double sum = sumOfferPricePerQuality[q];
+        double newSum = sum + price;
+        if (Math.abs(sum) >= Math.abs(price)) {
+            sumOfferPriceErrorPerQuality[q] += (sum - newSum) + price;
+        } else {
+            sumOfferPriceErrorPerQuality[q] += (price - newSum) + sum;
+        }
+        sumOfferPricePerQuality[q] = newSum;
+    }
+
+    /**
+     * Add increment to the count of unsold new builds, if the seller of the offer is the construction sector, or to the
+     * count of BTL sellers, if it is a BTL investor
+     */
+    private void countSeller(HouseOfferRecord offer, int increment) {
+        if (offer.getSeller() == context.construction) {
+            nUnsoldNewBuildCount += increment;
+        } else if (((Household) offer.getSeller()).behaviour.isPropertyInvestor()) {
+            nBTLSellersCount += increment;
         }
     }
 
@@ -454,8 +503,13 @@ public class HousingMarketStats extends CollectorBase {
     public int getnUnsoldNewBuild() { return nUnsoldNewBuild; }
     public double getSumBidPrices() { return sumBidPrices; }
     public double getSumOfferPrices() { return sumOfferPrices; }
-    public double [] getOfferPrices() { return offerPrices; }
-    public double [] getBidPrices() { return bidPrices; }
+    public double [] getOfferPrices() {
+        double [] offerPrices = new double[market.getOffersPQ().size()];
+        int i = 0;
+        for (HouseOfferRecord offer : market.getOffersPQ()) offerPrices[i++] = offer.getPrice();
+        return offerPrices;
+    }
+    public double [] getBidPrices() { return Arrays.copyOf(bidPrices, nBuyers); }
 
     // Getters for variables computed after market clearing to keep the previous values during the clearing
     public int getnSales() { return nSales; }
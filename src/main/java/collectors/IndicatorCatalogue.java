@@ -0,0 +1,414 @@
+package collectors;
+
+import housing.SimulationContext;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**************************************************************************************************
+ * Class to hold the catalogue of indicators that can be recorded at every time step, each one
+ * registered under a unique name, together with the optional collectors it is computed from. A
+ * simulation only records the indicators requested by its caller, and only runs those optional
+ * collectors which at least one of them is computed from, i.e., HouseholdStats, for the census of
+ * households, and CreditSupply, for the record of new loans and the monthly credit aggregates.
+ * The market statistics collectors are always run, as the behaviour of households depends on them,
+ * and so are any indicators read directly from agents, such as the housing stock.
+ *
+ * Indicators are registered in the order of the first index of the results array returned when
+ * all of them are requested, which is also the order of getNames().
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class IndicatorCatalogue {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    // Optional collectors, as flags to be combined into the set of collectors an indicator is computed from
+    public static final int                                 NO_COLLECTORS = 0;
+    public static final int                                 HOUSEHOLD_STATS = 1;
+    public static final int                                 CREDIT_SUPPLY = 2;
+    public static final int                                 ALL_COLLECTORS = HOUSEHOLD_STATS | CREDIT_SUPPLY;
+
+    private static final LinkedHashMap<String, Indicator>   INDICATORS = new LinkedHashMap<>();
+    private static final HashMap<String, Integer>           COLLECTORS = new HashMap<>();
+
+    //----------------------//
+    //----- Subclasses -----//
+    //----------------------//
+
+    /**
+     * Interface for reading the current value of an indicator from the context of a simulation, once it has been
+     * stepped. Implementations are not part of snapshots, which only hold the names of the indicators recorded.
+     */
+    public interface Indicator {
+        double get(SimulationContext context);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * @return Names of all registered indicators, in order of registration
+     */
+    public static String[] getNames() { return INDICATORS.keySet().toArray(new String[0]); }
+
+    /**
+     * @return Indicator registered under the given name
+     * @throws IllegalArgumentException If there is no indicator registered under that name
+     */
+    public static Indicator get(String name) {
+        Indicator indicator = INDICATORS.get(name);
+        if (indicator == null) throw new IllegalArgumentException("Unknown indicator: " + name);
+        return indicator;
+    }
+
+    /**
+     * @return Set of optional collectors, as a combination of flags, that any of the given indicators is computed from
+     * @throws IllegalArgumentException If there is no indicator registered under any of the names
+     */
+    public static int getCollectors(String[] names) {
+        int collectors = NO_COLLECTORS;
+        for (String name : names) {
+            get(name);
+            collectors |= COLLECTORS.get(name);
+        }
+        return collectors;
+    }
+
+    /**
+     * Activate the optional collectors in the given set, and deactivate the rest, so that only the former run at every
+     * time step of the simulation
+     *
+     * @param collectors Set of optional collectors, as a combination of flags
+     */
+    public static void setActiveCollectors(SimulationContext context, int collectors) {
+        context.householdStats.setActive((collectors & HOUSEHOLD_STATS) != 0);
+        context.creditSupply.setActive((collectors & CREDIT_SUPPLY) != 0);
+    }
+
+    /**
+     * Register an indicator under a new name
+     *
+     * @param collectors Set of optional collectors, as a combination of flags, the indicator is computed from
+     */
+    private static void register(String name, int collectors, Indicator indicator) {
+        if (INDICATORS.containsKey(name)) throw new IllegalArgumentException("Duplicate indicator: " + name);
+        INDICATORS.put(name, indicator);
+        COLLECTORS.put(name, collectors);
+    }
+
+    //----- Catalogue -----//
+
+    static {
+        register("AvRentPrice", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.rentalMarketStats.getAvSalePrice(); }
+        });
+        register("debtToIncome", HOUSEHOLD_STATS | CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getDebtToIncome(); }
+        });
+        register("ooLTI", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.coreIndicators.getOwnerOccupierLTIMeanAboveMedian();
+            }
+        });
+        register("btlLTV", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getBuyToLetLTVMean(); }
+        });
+        register("ooDebtToIncome", HOUSEHOLD_STATS | CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getOODebtToIncome(); }
+        });
+        register("mortgageApprovals", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getMortgageApprovals(); }
+        });
+        register("dtiBorrowers", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.dtiBorrowers; }
+        });
+        register("priceToIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getPriceToIncome(); }
+        });
+        register("rentalYield", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getAvStockYield(); }
+        });
+        register("interestRateSpread", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.coreIndicators.getInterestRateSpread(); }
+        });
+        register("nHomeless", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnHomeless(); }
+        });
+        register("nRenting", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnRenting(); }
+        });
+        register("nOwnerOccupier", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnOwnerOccupier(); }
+        });
+        register("nBTL", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnBTL(); }
+        });
+        // GC: newly bankrupt non-BTL households as a fraction of the stock (number) of mortgages, rather than the
+        // number of bankrupt non-BTL households
+        register("nNonBTLBankruptcies", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                int nNewBankruptcies = context.householdStats.getnNonBTLNewBakruptcies();
+                int nMortgages = context.creditSupply.getnRegisteredMortgages();
+                if (nMortgages > 0) {
+                    return (double)nNewBankruptcies/(double)nMortgages;
+                } else {
+                    return 0.0;
+                }
+            }
+        });
+        register("nBTLBankruptcies", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnBTLBankruptcies(); }
+        });
+        register("housingStock", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.construction.getHousingStock(); }
+        });
+        register("nNewBuild", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.construction.getnNewBuild(); }
+        });
+        register("nEmptyHouses", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getnEmptyHouses(); }
+        });
+        register("BTLStockFraction", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getBTLStockFraction(); }
+        });
+        // The number of registered mortgages is read from the bank, whether CreditSupply is active or not
+        register("nRegisteredMortgages", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.getnRegisteredMortgages(); }
+        });
+        register("bankBalAll", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getbankBalAll(); }
+        });
+        register("BankBalBTL", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getBankBalBTL(); }
+        });
+        register("BankBalOO", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getBankBalOO(); }
+        });
+        register("BankBalRent", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getBankBalRent(); }
+        });
+        register("BankBalHomeless", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.householdStats.getBankBalHomeless(); }
+        });
+        register("ActiveBTLAnnualisedTotalIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.householdStats.getActiveBTLAnnualisedTotalIncome();
+            }
+        });
+        register("OwnerOccupierAnnualisedTotalIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.householdStats.getOwnerOccupierAnnualisedTotalIncome();
+            }
+        });
+        register("RentingAnnualisedTotalIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.householdStats.getRentingAnnualisedTotalIncome();
+            }
+        });
+        register("HomelessAnnualisedTotalIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.householdStats.getHomelessAnnualisedTotalIncome();
+            }
+        });
+        register("AllAnnualisedTotalIncome", HOUSEHOLD_STATS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) {
+                return context.householdStats.getAllAnnualisedTotalIncome();
+            }
+        });
+        register("ltvBorrowers", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.ltvBorrowers; }
+        });
+        register("AvBidPrice", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getAvBidPrice(); }
+        });
+        register("AvOfferPrice", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getAvOfferPrice(); }
+        });
+        register("AvSalePrice", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getAvSalePrice(); }
+        });
+        register("AvDaysOnMarket", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getAvDaysOnMarket(); }
+        });
+        register("nBuyers", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getnBuyers(); }
+        });
+        register("nBTLBuyers", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getnBTLBuyers(); }
+        });
+        register("nSellers", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getnSellers(); }
+        });
+        register("nSales", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.housingMarketStats.getnSales(); }
+        });
+        register("supplyVal", NO_COLLECTORS, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.bank.getSupplyVal(); }
+        });
+        register("nFTBMortgages", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.nFTBMortgages; }
+        });
+        register("nBTLMortgages", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.nBTLMortgages; }
+        });
+        register("totalBTLCredit", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.totalBTLCredit; }
+        });
+        register("totalOOCredit", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.totalOOCredit; }
+        });
+        register("avgDownpayment", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.getAvgDownpayment(); }
+        });
+        register("ooDSR", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.ooDSR; }
+        });
+        register("btlDSR", CREDIT_SUPPLY, new Indicator() {
+            @Override
+            public double get(SimulationContext context) { return context.creditSupply.btlDSR; }
+        });
+        // GC: indicators per quality quartile, registered quartile by quartile for each of them
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "SalePrice", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getAvSalePricePerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "RentPrice", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.rentalMarketStats.getAvSalePricePerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "SaleN", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getNSalesPerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "RentN", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.rentalMarketStats.getNSalesPerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "Princ", CREDIT_SUPPLY, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.creditSupply.getAvPrincipalByQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "Install", CREDIT_SUPPLY, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.creditSupply.getAvInstallByQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "NumSaleOffers", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getNSaleOffersPerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "MinSaleOffers", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getMinOfferPerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "MaxSaleOffers", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getMaxOfferPerQualityQuartile(quartile);
+                }
+            });
+        }
+        for (int q = 1; q <= 4; q++) {
+            final int quartile = q;
+            register("q" + q + "AvgSaleOffers", NO_COLLECTORS, new Indicator() {
+                @Override
+                public double get(SimulationContext context) {
+                    return context.housingMarketStats.getAvgOfferPerQualityQuartile(quartile);
+                }
+            });
+        }
+    }
+}
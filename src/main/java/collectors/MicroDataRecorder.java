@@ -4,11 +4,14 @@ import housing.*;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 
-public class MicroDataRecorder {
+public class MicroDataRecorder implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-    public MicroDataRecorder(String outputFolder) {
+    public MicroDataRecorder(SimulationContext context, String outputFolder) {
+        this.context = context;
         outputFolderCopy = outputFolder;
     }
 
@@ -19,7 +22,7 @@ public class MicroDataRecorder {
 	public void openNewFile() {
 //		String simID = Integer.toHexString(UUID.randomUUID().hashCode());
 		try {
-			outfile = new PrintWriter(outputFolderCopy + "transactions-"+ Model.nSimulation+".csv", "UTF-8");
+			outfile = new PrintWriter(outputFolderCopy + "transactions-"+ context.nSimulation+".csv", "UTF-8");
 			outfile.println(
 					"Timestamp, transactionType, houseId, houseQuality, initialListedPrice, timeFirstOffered, transactionPrice, "+
 					"buyerId, buyerAge(years), buyerHasBTLGene, buyerMonthlyPreTaxIncome, buyerMonthlyEmploymentIncome, buyerBankBalance, buyerCapGainCoeff, "+
@@ -34,7 +37,7 @@ public class MicroDataRecorder {
 	public void recordSale(HouseBidderRecord purchase, HouseOfferRecord sale, MortgageAgreement mortgage, HousingMarket market) {
 		if(!active) return;
 		outfile.print(
-    			Model.getTime()+", "
+    			context.getTime()+", "
     			);
 		if(market instanceof HouseSaleMarket) {
 			outfile.print("sale, ");
@@ -98,8 +101,8 @@ public class MicroDataRecorder {
 		this.active = isActive;
 		if(isActive) {
 			try {
-				Model.housingMarketStats.setActive(true);
-				Model.rentalMarketStats.setActive(true);
+				context.housingMarketStats.setActive(true);
+				context.rentalMarketStats.setActive(true);
 				start();
 			} catch (FileNotFoundException | UnsupportedEncodingException e) {
 				// TODO Auto-generated catch block
@@ -108,7 +111,8 @@ public class MicroDataRecorder {
 		}
 	}
 
-	PrintWriter 	outfile;
+	transient PrintWriter 	outfile; // Output file, not included in snapshots of the simulation state
 	public boolean  active=false;
+	private SimulationContext context;
 	private String outputFolderCopy;
 }
@@ -4,7 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 
-import housing.Model;
+import housing.SimulationContext;
 
 /**************************************************************************************************
  * Class to write output to files
@@ -18,6 +18,7 @@ public class Recorder {
     //----- Fields -----//
     //------------------//
 
+    private SimulationContext context;
     private String outputFolder;
 
     private PrintWriter outfile;
@@ -41,7 +42,10 @@ public class Recorder {
     //----- Constructors -----//
     //------------------------//
 
-    public Recorder(String outputFolder) { this.outputFolder = outputFolder; }
+    public Recorder(SimulationContext context, String outputFolder) {
+        this.context = context;
+        this.outputFolder = outputFolder;
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -134,76 +138,76 @@ public class Recorder {
                 interestRateSpread.print(", ");
             }
             // Write core indicators results
-            ooLTI.print(Model.coreIndicators.getOwnerOccupierLTIMeanAboveMedian());        // * +++
-            btlLTV.print(Model.coreIndicators.getBuyToLetLTVMean());                       // * +++
-            creditGrowth.print(Model.coreIndicators.getHouseholdCreditGrowth());           // *
-            debtToIncome.print(Model.coreIndicators.getDebtToIncome());                    // * +++
-            ooDebtToIncome.print(Model.coreIndicators.getOODebtToIncome());                // * +++
-            mortgageApprovals.print(Model.coreIndicators.getMortgageApprovals());          // * +++
-            housingTransactions.print(Model.coreIndicators.getHousingTransactions());      // * +++
-            advancesToFTBs.print(Model.coreIndicators.getAdvancesToFTBs());                // *
-            advancesToBTL.print(Model.coreIndicators.getAdvancesToBTL());                  // *
-            advancesToHomeMovers.print(Model.coreIndicators.getAdvancesToHomeMovers());    // *
-            priceToIncome.print(Model.coreIndicators.getPriceToIncome());                  // * +++
-            rentalYield.print(Model.coreIndicators.getAvStockYield());                     // * +++
-            housePriceGrowth.print(Model.coreIndicators.getQoQHousePriceGrowth());
-            interestRateSpread.print(Model.coreIndicators.getInterestRateSpread());        // * +++
+            ooLTI.print(context.coreIndicators.getOwnerOccupierLTIMeanAboveMedian());        // * +++
+            btlLTV.print(context.coreIndicators.getBuyToLetLTVMean());                       // * +++
+            creditGrowth.print(context.coreIndicators.getHouseholdCreditGrowth());           // *
+            debtToIncome.print(context.coreIndicators.getDebtToIncome());                    // * +++
+            ooDebtToIncome.print(context.coreIndicators.getOODebtToIncome());                // * +++
+            mortgageApprovals.print(context.coreIndicators.getMortgageApprovals());          // * +++
+            housingTransactions.print(context.coreIndicators.getHousingTransactions());      // * +++
+            advancesToFTBs.print(context.coreIndicators.getAdvancesToFTBs());                // *
+            advancesToBTL.print(context.coreIndicators.getAdvancesToBTL());                  // *
+            advancesToHomeMovers.print(context.coreIndicators.getAdvancesToHomeMovers());    // *
+            priceToIncome.print(context.coreIndicators.getPriceToIncome());                  // * +++
+            rentalYield.print(context.coreIndicators.getAvStockYield());                     // * +++
+            housePriceGrowth.print(context.coreIndicators.getQoQHousePriceGrowth());
+            interestRateSpread.print(context.coreIndicators.getInterestRateSpread());        // * +++
         }
 
         // Write general output results to output file
         outfile.println(time + ", " +
                 // Number of households of each type
-                Model.householdStats.getnNonBTLHomeless() + ", " +
-                Model.householdStats.getnBTLHomeless() + ", " +
-                Model.householdStats.getnHomeless() + ", " +            // * +++
-                Model.householdStats.getnRenting() + ", " +             // * +++
-                Model.householdStats.getnNonOwner() + ", " +            
-                Model.householdStats.getnNonBTLOwnerOccupier() + ", " +
-                Model.householdStats.getnBTLOwnerOccupier() + ", " +
-                Model.householdStats.getnOwnerOccupier() + ", " +       // * +++
-                Model.householdStats.getnActiveBTL() + ", " +
-                Model.householdStats.getnBTL() + ", " +                 // * +++
-                Model.householdStats.getnNonBTLBankruptcies() + ", " +  // * +++
-                Model.householdStats.getnBTLBankruptcies() + ", " +     // * +++
-                Model.households.size() + ", " +
+                context.householdStats.getnNonBTLHomeless() + ", " +
+                context.householdStats.getnBTLHomeless() + ", " +
+                context.householdStats.getnHomeless() + ", " +            // * +++
+                context.householdStats.getnRenting() + ", " +             // * +++
+                context.householdStats.getnNonOwner() + ", " +            
+                context.householdStats.getnNonBTLOwnerOccupier() + ", " +
+                context.householdStats.getnBTLOwnerOccupier() + ", " +
+                context.householdStats.getnOwnerOccupier() + ", " +       // * +++
+                context.householdStats.getnActiveBTL() + ", " +
+                context.householdStats.getnBTL() + ", " +                 // * +++
+                context.householdStats.getnNonBTLBankruptcies() + ", " +  // * +++
+                context.householdStats.getnBTLBankruptcies() + ", " +     // * +++
+                context.households.size() + ", " +
                 // Numbers of houses of each type
-                Model.construction.getHousingStock() + ", " +           // * +++
-                Model.construction.getnNewBuild() + ", " +              // * +++
-                Model.housingMarketStats.getnUnsoldNewBuild() + ", " +
-                Model.householdStats.getnEmptyHouses() + ", " +         // * +++
-                Model.householdStats.getBTLStockFraction() + ", " +     // * +++
+                context.construction.getHousingStock() + ", " +           // * +++
+                context.construction.getnNewBuild() + ", " +              // * +++
+                context.housingMarketStats.getnUnsoldNewBuild() + ", " +
+                context.householdStats.getnEmptyHouses() + ", " +         // * +++
+                context.householdStats.getBTLStockFraction() + ", " +     // * +++
                 // House sale market data
-                Model.housingMarketStats.getHPI() + ", " +
-                Model.housingMarketStats.getAnnualHPA() + ", " +        
-                Model.housingMarketStats.getAvBidPrice() + ", " +       // *
-                Model.housingMarketStats.getAvOfferPrice() + ", " +     // *
-                Model.housingMarketStats.getAvSalePrice() + ", " +      // *
-                Model.housingMarketStats.getExpAvSalePrice() + ", " +
-                Model.housingMarketStats.getAvDaysOnMarket() + ", " +   // *
-                Model.housingMarketStats.getExpAvDaysOnMarket() + ", " +
-                Model.housingMarketStats.getnBuyers() + ", " +          // *
-                Model.housingMarketStats.getnBTLBuyers() + ", " +       // *
-                Model.housingMarketStats.getnSellers() + ", " +         // *
-                Model.housingMarketStats.getnNewSellers() + ", " +
-                Model.housingMarketStats.getnBTLSellers() + ", " +      // *
-                Model.housingMarketStats.getnSales() + ", " +           // *
-                Model.householdStats.getnNonBTLBidsAboveExpAvSalePrice() + ", " +
-                Model.householdStats.getnBTLBidsAboveExpAvSalePrice() + ", " +
-                Model.housingMarketStats.getnSalesToBTL() + ", " +
-                Model.housingMarketStats.getnSalesToFTB() + ", " +
+                context.housingMarketStats.getHPI() + ", " +
+                context.housingMarketStats.getAnnualHPA() + ", " +        
+                context.housingMarketStats.getAvBidPrice() + ", " +       // *
+                context.housingMarketStats.getAvOfferPrice() + ", " +     // *
+                context.housingMarketStats.getAvSalePrice() + ", " +      // *
+                context.housingMarketStats.getExpAvSalePrice() + ", " +
+                context.housingMarketStats.getAvDaysOnMarket() + ", " +   // *
+                context.housingMarketStats.getExpAvDaysOnMarket() + ", " +
+                context.housingMarketStats.getnBuyers() + ", " +          // *
+                context.housingMarketStats.getnBTLBuyers() + ", " +       // *
+                context.housingMarketStats.getnSellers() + ", " +         // *
+                context.housingMarketStats.getnNewSellers() + ", " +
+                context.housingMarketStats.getnBTLSellers() + ", " +      // *
+                context.housingMarketStats.getnSales() + ", " +           // *
+                context.householdStats.getnNonBTLBidsAboveExpAvSalePrice() + ", " +
+                context.householdStats.getnBTLBidsAboveExpAvSalePrice() + ", " +
+                context.housingMarketStats.getnSalesToBTL() + ", " +
+                context.housingMarketStats.getnSalesToFTB() + ", " +
                 // Rental market data
-                Model.rentalMarketStats.getHPI() + ", " +
-                Model.rentalMarketStats.getAnnualHPA() + ", " +
-                Model.rentalMarketStats.getAvBidPrice() + ", " +        // get
-                Model.rentalMarketStats.getAvOfferPrice() + ", " +      // get
-                Model.rentalMarketStats.getAvSalePrice() + ", " +       // get
-                Model.rentalMarketStats.getAvDaysOnMarket() + ", " +    // get
-                Model.rentalMarketStats.getnBuyers() + ", " +           // get
-                Model.rentalMarketStats.getnSellers() + ", " +          // get
-                Model.rentalMarketStats.getnSales() + ", " +
-                Model.rentalMarketStats.getExpAvFlowYield() + ", " +
+                context.rentalMarketStats.getHPI() + ", " +
+                context.rentalMarketStats.getAnnualHPA() + ", " +
+                context.rentalMarketStats.getAvBidPrice() + ", " +        // get
+                context.rentalMarketStats.getAvOfferPrice() + ", " +      // get
+                context.rentalMarketStats.getAvSalePrice() + ", " +       // get
+                context.rentalMarketStats.getAvDaysOnMarket() + ", " +    // get
+                context.rentalMarketStats.getnBuyers() + ", " +           // get
+                context.rentalMarketStats.getnSellers() + ", " +          // get
+                context.rentalMarketStats.getnSales() + ", " +
+                context.rentalMarketStats.getExpAvFlowYield() + ", " +
                 // Credit data
-                Model.creditSupply.getnRegisteredMortgages());       // *
+                context.creditSupply.getnRegisteredMortgages());       // *
     }
 
     public void finishRun(boolean recordCoreIndicators) {
@@ -16,9 +16,12 @@ public class RentalMarketStats extends HousingMarketStats {
 	//----- Fields -----//
 	//------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	// General fields
 	private HousingMarketStats  		housingMarketStats;
-	private Config                      config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private Config                      config; // Passes the context's configuration parameters object to a private field
+	private SimulationContext           context;
 
 	// Rental-specific variables computed during market clearing, counters
 	private double []                   sumMonthsOnMarketPerQualityCount; // Dummy counter
@@ -39,15 +42,19 @@ public class RentalMarketStats extends HousingMarketStats {
 	/**
 	 * Initialises the rental market statistics collector
 	 *
+	 * @param context Simulation context this collector belongs to
 	 * @param housingMarketStats Reference to the housing market collector
 	 * @param market Reference to the rental market
 	 */
-	public RentalMarketStats(HousingMarketStats housingMarketStats, HouseRentalMarket market) {
-		super(market);
+	public RentalMarketStats(SimulationContext context, HousingMarketStats housingMarketStats,
+							 HouseRentalMarket market) {
+		super(context, market);
+		this.context = context;
+		this.config = context.config;
 		setActive(true);
 		this.housingMarketStats = housingMarketStats;
 		referencePricePerQuality = new double[config.N_QUALITY];
-		System.arraycopy(data.HouseSaleMarket.getReferenceRentalPricePerQuality(), 0, referencePricePerQuality, 0,
+		System.arraycopy(context.houseSaleMarketData.getReferenceRentalPricePerQuality(), 0, referencePricePerQuality, 0,
 				config.N_QUALITY); // Copies reference rental prices from data/HouseSaleMarket
 	}
 
@@ -66,6 +73,7 @@ public class RentalMarketStats extends HousingMarketStats {
 		super.init();
 		// Set initial value for all rental specific variables
 		sumMonthsOnMarketPerQuality = new double[config.N_QUALITY];
+		sumMonthsOnMarketPerQualityCount = new double[config.N_QUALITY];
 		expAvMonthsOnMarketPerQuality  = new double[config.N_QUALITY];
 		Arrays.fill(expAvMonthsOnMarketPerQuality, 1.0);
 		avOccupancyPerQuality = new double[config.N_QUALITY];
@@ -87,7 +95,7 @@ public class RentalMarketStats extends HousingMarketStats {
 	public void preClearingRecord() {
 		super.preClearingRecord();
 		// Re-initialise to zero variables to be computed later on, during market clearing, counters
-		sumMonthsOnMarketPerQualityCount = new double[config.N_QUALITY];
+		Arrays.fill(sumMonthsOnMarketPerQualityCount, 0.0);
 	}
 
 	//----- Rental-specific during-market-clearing methods -----//
@@ -102,7 +110,7 @@ public class RentalMarketStats extends HousingMarketStats {
 	@Override
 	public void recordTransaction(HouseOfferRecord sale) {
 		super.recordTransaction(sale);
-		sumMonthsOnMarketPerQualityCount[sale.getQuality()] += (Model.getTime() - sale.gettInitialListing());
+		sumMonthsOnMarketPerQualityCount[sale.getQuality()] += (context.getTime() - sale.gettInitialListing());
 		
 	}
 
@@ -1,7 +1,8 @@
 package data;
 
+import java.io.Serializable;
+
 import housing.Config;
-import housing.Model;
 
 import utilities.BinnedDataDouble;
 import utilities.Pdf;
@@ -14,21 +15,23 @@ import utilities.Pdf;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class Demographics {
+public class Demographics implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private static Config config = Model.config; // Passes the Model's configuration parameters object to a private field
+    private static final long serialVersionUID = 1L;
+
+    private Config config; // Passes the context's configuration parameters object to a private field
 
     /**
      * Probability density by age of the representative householder given that the household is newly formed. New
      * households can be formed by, e.g., children leaving home, divorce, separation, people leaving an HMO. Roughly
      * calibrated against "The changing living arrangements of young adults in the UK" ONS Population Trends winter 2009
      */
-    private static BinnedDataDouble householdAgeAtBirth = new BinnedDataDouble(config.DATA_HOUSEHOLD_AGE_AT_BIRTH_PDF);
-    public static Pdf pdfHouseholdAgeAtBirth = new Pdf(householdAgeAtBirth, 800);
+    private BinnedDataDouble    householdAgeAtBirth;
+    public Pdf                  pdfHouseholdAgeAtBirth;
 
     /**
      * Probability that a household 'dies' per year given age of the representative householder
@@ -38,10 +41,29 @@ public class Demographics {
      */
     // Create a BinnedDataDouble object to keep bins and probabilities
     @SuppressWarnings("MismatchedQueryAndUpdateOfCollection") // Warning due to data array not being queried (other variables are used)
-    private static BinnedDataDouble probDeathGivenAgeData  = new BinnedDataDouble(config.DATA_DEATH_PROB_GIVEN_AGE);
+    private BinnedDataDouble    probDeathGivenAgeData;
+    private double[]            monthlyProbDeathGivenAgeInMonths; // Monthly probability of death, indexed by age in whole months
 
     // Once data on household age at birth and on death probabilities has been loaded, compute birth rate
-    private static double birthRate = computeBirthRate();
+    private double              birthRate;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Read household age at birth and death probability data from the files given in the configuration
+     *
+     * @param config Configuration parameters of the simulation context
+     */
+    public Demographics(Config config) {
+        this.config = config;
+        householdAgeAtBirth = new BinnedDataDouble(config.DATA_HOUSEHOLD_AGE_AT_BIRTH_PDF);
+        pdfHouseholdAgeAtBirth = new Pdf(householdAgeAtBirth);
+        probDeathGivenAgeData = new BinnedDataDouble(config.DATA_DEATH_PROB_GIVEN_AGE);
+        monthlyProbDeathGivenAgeInMonths = computeMonthlyProbDeathTable();
+        birthRate = computeBirthRate();
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -51,7 +73,7 @@ public class Demographics {
      * Compute monthly birth rate as a fraction of the target population, i.e., the number of births divided by the
      * target population
      */
-    private static double computeBirthRate() {
+    private double computeBirthRate() {
         // First, compute total number of households with ages between the minimum possible age at birth and the maximum
         // possible age at birth, which is also the last age for which death probability is zero (birth area)
         double sum1 = 0.0;
@@ -83,7 +105,7 @@ public class Demographics {
      * @param ageInYears Age in years (double)
      * @return probability Probability of death for the given age in years (double)
      */
-    public static double probDeathGivenAge(double ageInYears) {
+    public double probDeathGivenAge(double ageInYears) {
         if (ageInYears < probDeathGivenAgeData.getSupportLowerBound()) {
             return 0.0;
         } else if (ageInYears >= probDeathGivenAgeData.getSupportUpperBound()) {
@@ -93,12 +115,37 @@ public class Demographics {
         }
     }
 
+    /**
+     * Monthly probability of death for a given age in years, read from a table indexed by age in whole months. Since
+     * death probability bins span whole years, this is the same as probDeathGivenAge(ageInYears)/MONTHS_IN_YEAR
+     *
+     * @param ageInYears Age in years (double)
+     */
+    public double monthlyProbDeathGivenAge(double ageInYears) {
+        int ageInMonths = (int)(ageInYears*config.constants.MONTHS_IN_YEAR);
+        if (ageInMonths >= monthlyProbDeathGivenAgeInMonths.length) return 1.0;
+        return monthlyProbDeathGivenAgeInMonths[Math.max(ageInMonths, 0)];
+    }
+
+    /**
+     * Build the table of monthly probabilities of death by age in whole months, up to the maximum age, from which death
+     * is certain
+     */
+    private double[] computeMonthlyProbDeathTable() {
+        double[] table = new double[(int)Math.ceil(probDeathGivenAgeData.getSupportUpperBound()
+                *config.constants.MONTHS_IN_YEAR)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = probDeathGivenAge(((double) i)/config.constants.MONTHS_IN_YEAR)/config.constants.MONTHS_IN_YEAR;
+        }
+        return table;
+    }
+
     /**
      * Probability that a new household would be assigned a given age (in months)
      *
      * @param ageInMonths Age in months (int)
      */
-    private static double probHouseholdAgeAtBirthPerMonth(int ageInMonths) {
+    private double probHouseholdAgeAtBirthPerMonth(int ageInMonths) {
         if (ageInMonths / config.constants.MONTHS_IN_YEAR < householdAgeAtBirth.getSupportLowerBound()
                 || ageInMonths / config.constants.MONTHS_IN_YEAR > householdAgeAtBirth.getSupportUpperBound()) {
             return 0.0;
@@ -110,5 +157,5 @@ public class Demographics {
 
     //----- Getter/setter methods -----//
 
-    public static double getBirthRate() { return birthRate; }
+    public double getBirthRate() { return birthRate; }
 }
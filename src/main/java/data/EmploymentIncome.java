@@ -1,16 +1,19 @@
 package data;
 
-import housing.Model;
+import housing.Config;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.TreeSet;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
 
 import utilities.BinnedData;
 import utilities.BinnedDataDouble;
@@ -23,21 +26,46 @@ import utilities.Pdf;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class EmploymentIncome {
+public class EmploymentIncome implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
+
+	private static final long serialVersionUID = 1L;
 	
+	private Config config; // Passes the context's configuration parameters object to a private field
+
 	//GC:
 	//Store the income-age data:
-	static private double[][] incomeAge = loadGrossEmploymentIncomeGivenAge();
-	static public MersenneTwister prng;
+	private double[][] incomeAge;
+	// Index of incomeAge by age: each interval (ageEdges[k], ageEdges[k + 1]] between consecutive distinct age bounds
+	// is covered by a fixed subset of rows, stored in file order together with the running maximum of their cumulative
+	// percentiles, so that the first row matching a given percentile can be found by binary search
+	private double[] ageEdges;
+	private int[][] rowsByAgeInterval;
+	private double[][] maxPercentileByAgeInterval;
 
     /***
      * Calibrated against LCFS 2012 data
      */
-    static private BinnedData<Pdf> lnIncomeGivenAge = loadGrossEmploymentIncomePDFGivenAge();
+    private BinnedData<Pdf> lnIncomeGivenAge;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Read income given age data from the file given in the configuration
+     *
+     * @param config Configuration parameters of the simulation context
+     */
+    public EmploymentIncome(Config config) {
+        this.config = config;
+        incomeAge = loadGrossEmploymentIncomeGivenAge();
+        indexIncomeGivenAge();
+        lnIncomeGivenAge = loadGrossEmploymentIncomePDFGivenAge();
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -47,13 +75,13 @@ public class EmploymentIncome {
      *  GC:
      * 
      */
-	static private double[][] loadGrossEmploymentIncomeGivenAge() {
+	private double[][] loadGrossEmploymentIncomeGivenAge() {
 		
 		double[][] data = new double[112][];
 		
 		Iterator<CSVRecord> records;
 		try {
-			Reader in = new FileReader(Model.config.DATA_INCOME_GIVEN_AGE);
+			Reader in = new FileReader(config.DATA_INCOME_GIVEN_AGE);
 			records = CSVFormat.EXCEL.withHeader().parse(in).iterator();
 			
 			CSVRecord record;
@@ -89,48 +117,112 @@ public class EmploymentIncome {
 	}
 	
     /**
-     *  GC:
-     * 
+     * Build the index of incomeAge by age interval. A row, covering ages in (age min, age max + 1], covers either the
+     * whole or none of each interval between consecutive distinct age bounds
      */
-	private static double getIncomeGivenAgeAndPercentile(double _age, double _percentile)
-	{
-		double income = 0.0;
-		
-		for (int i = 0; i < incomeAge.length; i++)
-		{
-			double minAge = incomeAge[i][0];
-			double maxAge = incomeAge[i][1];
-			double percentile = incomeAge[i][4];
-			if (_age > minAge && _age <= maxAge + 1 && _percentile <= percentile)
-			{
-				double minIncome = incomeAge[i][2];
-				double maxIncome = incomeAge[i][3]; 
-				double rnd = prng.nextDouble();
-				income = minIncome + rnd * (maxIncome - minIncome);
-				
-				/*
-				double rnd = Math.random();
-				if (rnd < 0.17)
-				{
-					income *= 0.05;
-				} else if (rnd > 0.90)
-				{
-					income *= 1.95;
+	private void indexIncomeGivenAge() {
+		TreeSet<Double> edges = new TreeSet<>();
+		for (double[] row : incomeAge) {
+			edges.add(row[0]);
+			edges.add(row[1] + 1);
+		}
+		ageEdges = new double[edges.size()];
+		int k = 0;
+		for (double edge : edges) ageEdges[k++] = edge;
+		rowsByAgeInterval = new int[ageEdges.length - 1][];
+		maxPercentileByAgeInterval = new double[ageEdges.length - 1][];
+		for (k = 0; k < ageEdges.length - 1; k++) {
+			int[] rows = new int[incomeAge.length];
+			double[] maxPercentiles = new double[incomeAge.length];
+			int n = 0;
+			double maxPercentile = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < incomeAge.length; i++) {
+				if (incomeAge[i][0] <= ageEdges[k] && incomeAge[i][1] + 1 >= ageEdges[k + 1]) {
+					maxPercentile = Math.max(maxPercentile, incomeAge[i][4]);
+					rows[n] = i;
+					maxPercentiles[n++] = maxPercentile;
 				}
-				*/
-			
-				break;
 			}
+			rowsByAgeInterval[k] = Arrays.copyOf(rows, n);
+			maxPercentileByAgeInterval[k] = Arrays.copyOf(maxPercentiles, n);
 		}
-		
-		return income;
 	}
 
     /**
-     * Read data from file Model.config.DATA_INCOME_GIVEN_AGE and return it as a binnedData pdf of gross employment
+     * Find the first row of incomeAge whose age range contains the given age and whose cumulative percentile is at
+     * least the given percentile, through the age index and a binary search on the running maximum of the cumulative
+     * percentiles. Note that the row found only depends on the age interval of boundAge, up to getAgeLimit(boundAge),
+     * and on the percentile, and not on the incomes of the rows, so that it is not affected by income shocks.
+     *
+     * @param boundAge Age, as returned by getBoundAge
+     * @param percentile Income percentile
+     * @return Index of the row, or -1 if there is no such row
+     */
+    public int getIncomeRow(double boundAge, double percentile) {
+		int k = getAgeInterval(boundAge);
+		if (k < 0 || k >= rowsByAgeInterval.length) return -1;
+		// Find the first row with a cumulative percentile at least percentile
+		double[] maxPercentiles = maxPercentileByAgeInterval[k];
+		int lo = 0;
+		int hi = maxPercentiles.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (maxPercentiles[mid] < percentile) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return (lo == maxPercentiles.length) ? -1 : rowsByAgeInterval[k][lo];
+	}
+
+    /**
+     * @param boundAge Age, as returned by getBoundAge
+     * @return Highest age within the same age interval as boundAge, i.e., up to which getIncomeRow gives the same row
+     */
+    public double getAgeLimit(double boundAge) {
+		int k = getAgeInterval(boundAge);
+		if (k < 0) return ageEdges[0];
+		if (k >= rowsByAgeInterval.length) return Double.POSITIVE_INFINITY;
+		return ageEdges[k + 1];
+	}
+
+    /**
+     * Draw an annual gross employment income uniformly within the bounds of a row of incomeAge, with a minimum income
+     * equivalent to the minimum government annual income support
+     *
+     * @param row Index of the row, as returned by getIncomeRow, or -1 for no row (and thus the minimum income)
+     * @param rng Random number generator of the household
+     */
+    public double drawIncome(int row, RandomGenerator rng) {
+		double income = 0.0;
+		if (row >= 0) {
+			double minIncome = incomeAge[row][2];
+			double maxIncome = incomeAge[row][3];
+			income = minIncome + rng.nextDouble() * (maxIncome - minIncome);
+		}
+        // Impose a minimum income equivalent to the minimum government annual income support
+        if (income < config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*config.constants.MONTHS_IN_YEAR) {
+            income = config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*config.constants.MONTHS_IN_YEAR;
+        }
+        return income;
+	}
+
+    /**
+     * @return Index k such that ageEdges[k] < boundAge <= ageEdges[k + 1], which can be -1 or the number of intervals
+     * if boundAge is outside all of them
+     */
+	private int getAgeInterval(double boundAge) {
+		int k = Arrays.binarySearch(ageEdges, boundAge);
+		if (k < 0) k = -k - 1;
+		return k - 1;
+	}
+
+    /**
+     * Read data from file config.DATA_INCOME_GIVEN_AGE and return it as a binnedData pdf of gross employment
      * income conditional on household age. Note that we are dealing here with logarithmic incomes.
      */
-	static private BinnedData<Pdf> loadGrossEmploymentIncomePDFGivenAge() {
+	private BinnedData<Pdf> loadGrossEmploymentIncomePDFGivenAge() {
 		final int givenMinCol = 0;
 		final int givenMaxCol = 1;
 		final int varMinCol = 2;
@@ -145,7 +237,7 @@ public class EmploymentIncome {
 		
 		Iterator<CSVRecord> records;
 		try {
-			Reader in = new FileReader(Model.config.DATA_INCOME_GIVEN_AGE);
+			Reader in = new FileReader(config.DATA_INCOME_GIVEN_AGE);
 			records = CSVFormat.EXCEL.withHeader().parse(in).iterator();
 			
 			CSVRecord record;
@@ -184,37 +276,33 @@ public class EmploymentIncome {
 	}
 
     /**
-     * Find household annual gross income given age and income percentile
+     * Bound age to the age range of the income data, i.e., the age to use for income purposes
      */
-    static public double getAnnualGrossEmploymentIncome(double boundAge, double incomePercentile) {
-        // If boundAge is below minimum age bin, then minimum age bin is assigned
-        if (boundAge < lnIncomeGivenAge.getSupportLowerBound()) {
-            boundAge = lnIncomeGivenAge.getSupportLowerBound();
+    public double getBoundAge(double age) {
+        // If age is below minimum age bin, then minimum age bin is assigned
+        if (age < lnIncomeGivenAge.getSupportLowerBound()) {
+            return lnIncomeGivenAge.getSupportLowerBound();
         }
-        // If boundAge is above maximum age bin, then maximum age bin is assigned
-        else if (boundAge > lnIncomeGivenAge.getSupportUpperBound()) {
-            boundAge = lnIncomeGivenAge.getSupportUpperBound() - 1e-7;
+        // If age is above maximum age bin, then maximum age bin is assigned
+        else if (age > lnIncomeGivenAge.getSupportUpperBound()) {
+            return lnIncomeGivenAge.getSupportUpperBound() - 1e-7;
         }
-        // Assign gross annual income according to the determined boundAge
-        
+        return age;
+    }
+
+    /**
+     * Find household annual gross income given age and income percentile, drawing the income within its bin from the
+     * given random number generator, so that households can be stepped concurrently, each with its own generator
+     */
+    public double getAnnualGrossEmploymentIncome(double age, double incomePercentile, RandomGenerator rng) {
         // GC: old way to compute the income:
         //double income = Math.exp(lnIncomeGivenAge.getBinAt(boundAge).inverseCumulativeProbability(incomePercentile));
-        //System.out.println("Age: " + boundAge + ". Perc: " + incomePercentile);
-        //System.out.println("");
-        
         // GC: new (mine) way to compute the income:
-        double income = getIncomeGivenAgeAndPercentile(boundAge, incomePercentile);
-        //System.out.println("Age: " + boundAge + ". Perc: " + incomePercentile + " incomeNew : " + incomeZ + " incomeOld: " + income);
-        
-        // Impose a minimum income equivalent to the minimum government annual income support
-        if (income < Model.config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*Model.config.constants.MONTHS_IN_YEAR) {
-            income = Model.config.GOVERNMENT_MONTHLY_INCOME_SUPPORT*Model.config.constants.MONTHS_IN_YEAR;
-        }
-        return income;
+        return drawIncome(getIncomeRow(getBoundAge(age), incomePercentile), rng);
     }
     
     // GC: start
-    static public void permanently_shock_incomeAge(float shock_size)
+    public void permanently_shock_incomeAge(float shock_size)
     {
 		for (int i = 0; i < incomeAge.length; i++)
 		{
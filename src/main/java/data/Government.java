@@ -1,10 +1,11 @@
 package data;
 
-import housing.Model;
+import housing.Config;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,17 +18,30 @@ import java.util.List;
  * @since 20/05/17
  *
  ************************************************/
-public class Government {
+public class Government implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /** Declarations and initialisations **/
 
-    public static BandsAndRates tax = readBandsAndRates(Model.config.DATA_TAX_RATES);
-    public static BandsAndRates nationalInsurance = readBandsAndRates(Model.config.DATA_NATIONAL_INSURANCE_RATES);
+    public BandsAndRates tax;
+    public BandsAndRates nationalInsurance;
+
+    /**
+     * Read tax and national insurance bands and rates from the files given in the configuration
+     *
+     * @param config Configuration parameters of the simulation context
+     */
+    public Government(Config config) {
+        tax = readBandsAndRates(config.DATA_TAX_RATES);
+        nationalInsurance = readBandsAndRates(config.DATA_NATIONAL_INSURANCE_RATES);
+    }
 
     /**
      * Class to group bands and rates arrays in a single object, such that it can be returned from methods
      */
-    public static class BandsAndRates {
+    public static class BandsAndRates implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         public Double[] bands = null;
         public Double[] rates = null;
     }
@@ -1,8 +1,9 @@
 package data;
 
+import java.io.Serializable;
+
 import housing.Config;
 
-import housing.Model;
 import org.apache.commons.math3.distribution.LogNormalDistribution;
 
 /**************************************************************************************************
@@ -12,18 +13,34 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class HouseSaleMarket {
+public class HouseSaleMarket implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-	private static Config                   config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private static final long serialVersionUID = 1L;
+
+	private Config                          config; // Passes the context's configuration parameters object to a private field
     // TODO: Replace this theoretical distribution with an updated version or with the real frequencies
-	private static LogNormalDistribution    listPriceDistribution
-                                                    = new LogNormalDistribution(config.derivedParams.HPI_LOG_MEDIAN,
-                                                            config.HPI_SHAPE);
-	private static double []                refPrice = setupRefPrice();
+	private LogNormalDistribution           listPriceDistribution;
+	private double []                       refPrice;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Set up the reference prices for each quality band from the configuration, which must already have its derived
+     * parameters set
+     *
+     * @param config Configuration parameters of the simulation context
+     */
+    public HouseSaleMarket(Config config) {
+        this.config = config;
+        listPriceDistribution = new LogNormalDistribution(config.derivedParams.HPI_LOG_MEDIAN, config.HPI_SHAPE);
+        refPrice = setupRefPrice();
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -32,7 +49,7 @@ public class HouseSaleMarket {
 	/***
 	 * @return refPrice Array of doubles with the reference price for each quality band
 	 */
-	public static double [] getReferencePricePerQuality() {
+	public double [] getReferencePricePerQuality() {
 		
 		return refPrice; 
 		
@@ -42,7 +59,7 @@ public class HouseSaleMarket {
      * @return rentalRefPrice Array of doubles with the reference rental price for each quality band
      */
     // TODO: Replace this by a proper reference rental prices!!!
-    public static double [] getReferenceRentalPricePerQuality() {
+    public double [] getReferenceRentalPricePerQuality() {
         double [] rentalRefPrice = new double[config.N_QUALITY];
         for (int i = 0; i < config.N_QUALITY; i++) {
             rentalRefPrice[i] = refPrice[i]/(config.RENT_MAX_AMORTIZATION_PERIOD*config.constants.MONTHS_IN_YEAR);
@@ -53,7 +70,7 @@ public class HouseSaleMarket {
 	/**
 	 * @return Set up initial reference prices for each house quality
      */
-	private static double [] setupRefPrice() {
+	private double [] setupRefPrice() {
 		//System.out.println(config.N_QUALITY + " HSM setup");
 		double [] result = new double[config.N_QUALITY];
 		for(int q = 0; q < config.N_QUALITY; ++q) {
@@ -64,18 +81,6 @@ public class HouseSaleMarket {
 		return result;
 	}
 	
-	// GC: ADD to update the refPrice in calibration exercises
-	public static void updateRefPrice()
-	{
-		//System.out.println(config.N_QUALITY + " HSM update");
-		refPrice = setupRefPrice();
-	}
-	// GC: updates the reference to the config file
-	public static void updateConfigFile(Config file)
-	{
-		config = file;
-	}
-	// GC: END
 	
 /*
  * NOTES ON AGGREGATE CALIBRATION
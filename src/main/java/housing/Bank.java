@@ -1,6 +1,6 @@
 package housing;
 
-import java.util.HashSet;
+import java.io.Serializable;
 
 /**************************************************************************************************
  * Class to represent a mortgage-lender (i.e. a bank or building society), whose only function is
@@ -9,17 +9,20 @@ import java.util.HashSet;
  * @author daniel, davidrpugh, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class Bank {
+public class Bank implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	// General fields
-	private Config	                    config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private Config	                    config; // Passes the context's configuration parameters object to a private field
+	private SimulationContext           context;
 
     // Bank fields
-    public HashSet<MortgageAgreement>	mortgages; // all unpaid mortgage contracts supplied by the bank
+    public MortgageBook                 mortgages; // all unpaid mortgage contracts supplied by the bank, in order of approval
     public double		                interestSpread; // current mortgage interest spread above base rate (monthly rate*12)
     private double                      monthlyPaymentFactor; // Monthly payment as a fraction of the principal for non-BTL mortgages
     private double                      monthlyPaymentFactorBTL; // Monthly payment as a fraction of the principal for BTL (interest-only) mortgages
@@ -46,8 +49,10 @@ public class Bank {
     //----- Constructors -----//
     //------------------------//
 
-	public Bank() {
-		mortgages = new HashSet<>();
+	public Bank(SimulationContext context) {
+		this.context = context;
+		this.config = context.config;
+		mortgages = new MortgageBook();
 		init();
 	}
 
@@ -162,12 +167,16 @@ public class Bank {
 		// --- if all's well, go ahead and arrange mortgage
 		supplyVal += approval.principal;
 		if(approval.principal > 0.0) {
+			// Sets the debt-to-income and loan-to-value ratios, which the book of mortgages adds to its totals, before
+			// recording the loan with the credit supply statistics, only if they are being collected
+			approval.dti = approval.principal/h.getAnnualGrossEmploymentIncome();
+			approval.ltv = approval.principal/(approval.principal + approval.downPayment);
+			if (context.creditSupply.isActive()) context.creditSupply.recordLoan(h, approval, house);
 			mortgages.add(approval);
-			Model.creditSupply.recordLoan(h, approval, house);
             if(isHome) {
                 ++nOOMortgages;
                 if(approval.principal/h.getAnnualGrossEmploymentIncome() >
-                        Model.centralBank.getLoanToIncomeLimit(h.isFirstTimeBuyer(), isHome)) {
+                        context.centralBank.getLoanToIncomeLimit(h.isFirstTimeBuyer(), isHome)) {
                     ++nOOMortgagesOverLTI;
 				}
 			}
@@ -186,7 +195,7 @@ public class Bank {
 	 */
 	MortgageAgreement requestApproval(Household h, double housePrice, double desiredDownPayment,
                                       boolean isHome) {
-		MortgageAgreement approval = new MortgageAgreement(h, !isHome);
+		MortgageAgreement approval = new MortgageAgreement(this, h, !isHome);
 		double r = getMortgageInterestRate()/config.constants.MONTHS_IN_YEAR; // monthly interest rate
 		double lti_principal, affordable_principal, icr_principal;
         double liquidWealth = h.getBankBalance(); // No home equity needs to be added here: home-movers always sell their homes before trying to buy new ones
@@ -225,8 +234,8 @@ public class Bank {
 			approval.principal = Math.min(approval.principal, lti_principal);
 		} else {
 			// --- BTL ICR constraint
-			icr_principal = Model.rentalMarketStats.getExpAvFlowYield()*housePrice
-                    /(Model.centralBank.getInterestCoverRatioLimit(isHome)*config.CENTRAL_BANK_BTL_STRESSED_INTEREST);
+			icr_principal = context.rentalMarketStats.getExpAvFlowYield()*housePrice
+                    /(context.centralBank.getInterestCoverRatioLimit(isHome)*config.CENTRAL_BANK_BTL_STRESSED_INTEREST);
 			approval.principal = Math.min(approval.principal, icr_principal);
 		}
 		
@@ -297,8 +306,8 @@ public class Bank {
 			max_price = Math.min(max_price, lti_max_price);
 		} else {
 		    // Interest-Cover-Ratio constraint
-			icr_max_price = max_downpayment/(1.0 - Model.rentalMarketStats.getExpAvFlowYield()
-                    /(Model.centralBank.getInterestCoverRatioLimit(isHome)*config.CENTRAL_BANK_BTL_STRESSED_INTEREST));
+			icr_max_price = max_downpayment/(1.0 - context.rentalMarketStats.getExpAvFlowYield()
+                    /(context.centralBank.getInterestCoverRatioLimit(isHome)*config.CENTRAL_BANK_BTL_STRESSED_INTEREST));
             max_price = Math.min(max_price,  icr_max_price);
         }
 
@@ -306,11 +315,13 @@ public class Bank {
 	}
 
     /**
-     * This method removes a mortgage contract by removing it from the HashSet of mortgages
+     * This method removes a mortgage contract by removing it from the book of mortgages. It is synchronized since
+     * mortgages are paid off during the concurrent phase of the household step, the order of removals having no effect
+     * on the order of the remaining mortgages
      *
      * @param mortgage The MortgageAgreement object to be removed
      */
-    void endMortgageContract(MortgageAgreement mortgage) { mortgages.remove(mortgage); }
+    synchronized void endMortgageContract(MortgageAgreement mortgage) { mortgages.remove(mortgage); }
 
     //----- Mortgage policy methods -----//
 
@@ -360,9 +371,9 @@ public class Bank {
         // If the fraction of non-BTL mortgages already underwritten over the Central Bank LTI limit exceeds a certain
         // maximum (regulated also by the Central Bank)...
         if ((nOOMortgagesOverLTI + 1.0)/(nOOMortgages + 1.0) >
-                Model.centralBank.getMaxFractionOOMortgagesOverLTILimit()) {
+                context.centralBank.getMaxFractionOOMortgagesOverLTILimit()) {
             // ... then compare the Central Bank LTI (soft) limit and that of the private bank (hard) and choose the smallest
-            limit = Math.min(limit, Model.centralBank.getLoanToIncomeLimit(isFirstTimeBuyer, isHome));
+            limit = Math.min(limit, context.centralBank.getLoanToIncomeLimit(isFirstTimeBuyer, isHome));
         }
 		return limit;
     }
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent the mortgage policy regulator or Central Bank. It reads a number of policy
  * thresholds from the config object into local variables with the purpose of allowing for dynamic
@@ -9,14 +11,16 @@ package housing;
  *
  *************************************************************************************************/
 
-public class CentralBank {
+public class CentralBank implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     // General fields
-	private Config	config = Model.config;	// Passes the Model's configuration parameters object to a private field
+	private Config	config;	// Passes the context's configuration parameters object to a private field
 
     // LTI policy thresholds
     private double firstTimeBuyerLTILimit; // Loan-To-Income upper limit for first-time buying mortgages
@@ -27,6 +31,12 @@ public class CentralBank {
     private double interestCoverRatioLimit; // Ratio of expected rental yield over interest monthly payment under stressed interest conditions
     private double interestCoverRatioStressedRate; // Stressed interest rate used for Interest-Cover-Ratio assessments
 
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    CentralBank(SimulationContext context) { this.config = context.config; }
+
     //-------------------//
     //----- Methods -----//
     //-------------------//
@@ -2,6 +2,7 @@ package housing;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.HashSet;
 import java.util.Properties;
@@ -16,12 +17,14 @@ import java.util.Set;
  * @since 20/02/2017
  *
  *************************************************************************************************/
-public class Config {
+public class Config implements Serializable {
 
     //---------------------------------//
     //----- Fields and subclasses -----//
     //---------------------------------//
 
+    private static final long serialVersionUID = 1L;
+
     /** Declaration of parameters **/
 
     // General model control parameters
@@ -31,6 +34,7 @@ public class Config {
     int N_SIMS; 					        // Number of simulations to run (monte-carlo)
     boolean recordCoreIndicators;		    // True to write time series for each core indicator
     boolean recordMicroData;			    // True to write micro data for each transaction made
+    int N_WORKER_THREADS;                   // Number of threads for the parallel phases of each time step
 
     // House parameters
     public int N_QUALITY;                   // Number of quality bands for houses
@@ -175,7 +179,9 @@ public class Config {
      * Class to contain all parameters which are not read from the configuration (.properties) file, but derived,
      * instead, from these configuration parameters
      */
-    public class DerivedParams {
+    public class DerivedParams implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         // Housing market parameters
         public int HPI_RECORD_LENGTH;   // Number of months to record HPI (to compute price growth at different time scales)
         double MONTHS_UNDER_OFFER;      // Time (in months) that a house remains under offer
@@ -215,7 +221,9 @@ public class Config {
     /**
      * Class to contain all constants (not read from the configuration file nor derived from it)
      */
-    public class Constants {
+    public class Constants implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         final public int DAYS_IN_MONTH = 30;
         final public int MONTHS_IN_YEAR = 12;
     }
@@ -390,6 +398,8 @@ public class Config {
      * Equivalent to NumberFormatException for detecting problems when parsing for boolean values
      */
     public class BooleanFormatException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
         BooleanFormatException(String message) { super(message); }
     }
 
@@ -397,6 +407,8 @@ public class Config {
      * Exception for detecting unrecognised (not implemented) field types
      */
     public class UnrecognisedFieldTypeException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         UnrecognisedFieldTypeException(Field field) {
             super("Field type \"" + field.getType().toString() + "\", found at field \"" + field.getName() +
                     "\", could not be recognised as any of the implemented types");
@@ -407,6 +419,8 @@ public class Config {
      * Exception for detecting fields declared in the code but not present in the config.properties file
      */
     public class FieldNotInFileException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         FieldNotInFileException(Field field) {
             super("Field \"" + field.getName() + "\" could not be found in the config.properties file");
         }
@@ -416,6 +430,8 @@ public class Config {
      * Exception for detecting properties present in the config.properties file but not declared in the code
      */
     public class UndeclaredPropertyException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         UndeclaredPropertyException(Object property) {
             super("Property \"" + property + "\" could not be found among the fields declared within the Config class");
         }
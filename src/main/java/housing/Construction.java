@@ -2,30 +2,44 @@ package housing;
 
 import org.apache.commons.math3.random.MersenneTwister;
 
-import java.util.HashSet;
+import utilities.DoubleUnaryOperator;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 
-public class Construction implements IHouseOwner{
+
+public class Construction implements IHouseOwner, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
+    private static final DoubleUnaryOperator PRICE_REDUCTION = new DoubleUnaryOperator() { // Monthly price cut on unsold new builds
+        @Override
+        public double applyAsDouble(double price) { return price*0.95; }
+    };
+
     private int                         housingStock; // Total number of houses in the whole model
     private int                         nNewBuild; // Number of houses built this month
 
-    private Config	                    config = Model.config; // Passes the Model's configuration parameters object to a private field
+    private Config	                    config; // Passes the context's configuration parameters object to a private field
+    private SimulationContext           context;
     private MersenneTwister             prng;
-    private HashSet<House>              onMarket;
+    private LinkedHashSet<House>        onMarket; // Unsold new builds, in order of construction
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-	public Construction(MersenneTwister prng) {
+	public Construction(SimulationContext context) {
+		this.context = context;
+		this.config = context.config;
 		housingStock = 0;
-		onMarket = new HashSet<>();
-		this.prng = prng;
+		onMarket = new LinkedHashSet<>();
+		this.prng = context.prng;
 	}
 
     //-------------------//
@@ -41,13 +55,13 @@ public class Construction implements IHouseOwner{
         // Initialise to zero the number of houses built this month
         nNewBuild = 0;
         // First update prices of properties put on the market on previous time steps and still unsold
-        for(House h : onMarket) {
-            Model.houseSaleMarket.updateOffer(h.getSaleRecord(), h.getSaleRecord().getPrice()*0.95);
-        }
+        ArrayList<HouseOfferRecord> unsold = new ArrayList<>(onMarket.size());
+        for(House h : onMarket) unsold.add(h.getSaleRecord());
+        context.houseSaleMarket.repriceAll(unsold, PRICE_REDUCTION);
         // Then, compute target housing stock dependent on current and target population
         int targetStock;
-        if(Model.households.size() < config.TARGET_POPULATION) {
-            targetStock = (int)(Model.households.size()*config.CONSTRUCTION_HOUSES_PER_HOUSEHOLD);
+        if(context.households.size() < config.TARGET_POPULATION) {
+            targetStock = (int)(context.households.size()*config.CONSTRUCTION_HOUSES_PER_HOUSEHOLD);
         } else {
             targetStock = (int)(config.TARGET_POPULATION*config.CONSTRUCTION_HOUSES_PER_HOUSEHOLD);
         }
@@ -62,11 +76,11 @@ public class Construction implements IHouseOwner{
         House newHouse;
         while(shortFall > 0) {
             // ...create a new house with a random quality and with the construction sector as the owner
-            newHouse = new House((int)(prng.nextDouble()*config.N_QUALITY));
+            newHouse = new House(context.nextHouseId(), (int)(prng.nextDouble()*config.N_QUALITY));
             newHouse.owner = this;
             // ...put the house for sale in the house sale market at the reference price for that quality
-            Model.houseSaleMarket.offer(newHouse,
-                    Model.housingMarketStats.getReferencePriceForQuality(newHouse.getQuality()), false);
+            context.houseSaleMarket.offer(newHouse, this,
+                    context.housingMarketStats.getReferencePriceForQuality(newHouse.getQuality()), false);
             // ...add the house to the portfolio of construction sector properties
             onMarket.add(newHouse);
             // ...and finally increase housing stocks, and decrease shortfall
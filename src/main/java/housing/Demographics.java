@@ -1,16 +1,20 @@
 package housing;
 
-import java.util.Iterator;
+import java.io.Serializable;
+import java.util.ArrayList;
 
 import org.apache.commons.math3.random.MersenneTwister;
 
-public class Demographics {
+public class Demographics implements Serializable {
 
 	//------------------//
 	//----- Fields -----//
 	//------------------//
 
-	private Config	            config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private static final long serialVersionUID = 1L;
+
+	private Config	            config; // Passes the context's configuration parameters object to a private field
+	private SimulationContext   context;
 	private MersenneTwister     prng;
 	
 	// GC:
@@ -21,8 +25,10 @@ public class Demographics {
     //----- Constructors -----//
     //------------------------//
 
-	public Demographics(MersenneTwister prng, double _incomeShockProb) { 
-		this.prng = prng; 
+	public Demographics(SimulationContext context, double _incomeShockProb) {
+		this.context = context;
+		this.config = context.config;
+		this.prng = context.prng;
 		this.incomeShockProb = _incomeShockProb;
 	}
 
@@ -37,23 +43,34 @@ public class Demographics {
 		
         // Birth: Add new households at a rate compatible with the age at birth distribution, the probability of
         // death dependent on age, and the target population
-        int nBirths = (int) (config.TARGET_POPULATION * data.Demographics.getBirthRate() + prng.nextDouble());
-        // Finally, add the households, with random ages drawn from the corresponding distribution
-        while (nBirths-- > 0) {
-            Model.households.add(new Household(prng, incomeShockProb));
+        int nBirths = (int) (config.TARGET_POPULATION * context.demographicsData.getBirthRate() + prng.nextDouble());
+        // Finally, add the households, with random ages drawn all at once from the corresponding distribution
+        double[] agesAtBirth = new double[nBirths];
+        context.demographicsData.pdfHouseholdAgeAtBirth.fill(agesAtBirth, prng);
+        for (double ageAtBirth : agesAtBirth) {
+            context.households.add(new Household(context, ageAtBirth, incomeShockProb));
         }
-        // Death: Kill households with a probability dependent on their age and organise inheritance
+        // Death: Kill households with a probability dependent on their age and organise inheritance. Survivors are
+        // compacted towards the front of the list in a single pass, so that positions [0, nAlive) hold the survivors
+        // found so far and positions (i, n) the households still to be processed
+        ArrayList<Household> households = context.households;
+        int n = households.size();
+        int nAlive = 0;
         double pDeath;
-        Iterator<Household> iterator = Model.households.iterator();
-        while (iterator.hasNext()) {
-            Household h = iterator.next();
-            pDeath = data.Demographics.probDeathGivenAge(h.getAge())/config.constants.MONTHS_IN_YEAR;
+        for (int i = 0; i < n; i++) {
+            Household h = households.get(i);
+            pDeath = context.demographicsData.monthlyProbDeathGivenAge(h.getAge());
             if (prng.nextDouble() < pDeath) {
-                iterator.remove();
-                // Inheritance
-                h.transferAllWealthTo(Model.households.get(prng.nextInt(Model.households.size())));
+                // Inheritance, to a household drawn uniformly among the survivors so far and those still to be
+                // processed, i.e., among those that would remain on the list if dead households were removed from it
+                int j = prng.nextInt(nAlive + n - i - 1);
+                h.transferAllWealthTo(households.get(j < nAlive ? j : i + 1 + j - nAlive));
+                context.householdTable.release(h.slot);
+            } else {
+                households.set(nAlive++, h);
             }
         }
+        households.subList(nAlive, n).clear();
         
 	}
 }
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent the government, whose only role in the current model is to collect taxes,
  * including both income tax and national insurance contributions
@@ -7,13 +9,29 @@ package housing;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class Government {
+public class Government implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-	private Config	config = Model.config;	// Passes the Model's configuration parameters object to a private field
+	private static final long serialVersionUID = 1L;
+
+	private Config	            config;	// Passes the context's configuration parameters object to a private field
+    private SimulationContext   context;
+    private BandTable           incomeTax; // Income tax bands and rates
+    private BandTable           nationalInsurance; // Class 1 national insurance contributions bands and rates
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    Government(SimulationContext context) {
+        this.context = context;
+        this.config = context.config;
+        incomeTax = new BandTable(context.governmentData.tax);
+        nationalInsurance = new BandTable(context.governmentData.nationalInsurance);
+    }
 
     //-------------------//
     //----- Methods -----//
@@ -38,7 +56,7 @@ public class Government {
         }
         // Compute and return tax to be paid based on gross annual income and taking into account the computed personal
         // allowance
-        return bandedPercentage(grossIncome, data.Government.tax.bands, data.Government.tax.rates, personalAllowance);
+        return incomeTax.bandedPercentage(grossIncome, personalAllowance);
 	}
 	
 	/**
@@ -52,39 +70,64 @@ public class Government {
 	 * @return Annual class 1 NICs due
 	 */
 	double class1NICsDue(double grossIncome) {
-		return bandedPercentage(grossIncome, data.Government.nationalInsurance.bands,
-                data.Government.nationalInsurance.rates, 0.0);
+		return nationalInsurance.bandedPercentage(grossIncome, 0.0);
 	}
 	
-	/**
-	 * Calculate a "banded percentage" on a value. A "banded percentage" is a way of calculating a non-linear function,
-     * f(x), widely used by HMRC. The domain of values of f(x) is split into bands: from 0 to x1, from x1 to x2, etc.
-     * Each band is associated with a percentage p1, p2, etc. The final value of f(x) is the sum of the percentages of
-     * each band. So, for example, if x lies somewhere between x1 and x2, f(x) would be p1*x1 + p2*(x - x1)
-     *
-     * Note that bands are internally shifted to take into account any untaxed allowance. This is used take into account
-     * the particular personal allowance of a given household for income tax purposes. Given that the untaxed allowance
-     * for national insurance contributions is the same for every household, it is taken into account already in the
-     * bands' thresholds, rather than as an untaxed allowance within the call to this method
-	 * 
-	 * @param taxableIncome The value to apply the banded percentage to
-	 * @param bands An array holding the lower limit of each band
-	 * @param rates An array holding the percentage applicable to each band
-     * @param untaxedAllowance Any untaxed allowance
-	 * @return The banded percentage of "taxableIncome"
-	 */
-	private double bandedPercentage(double taxableIncome, Double [] bands, Double [] rates, double untaxedAllowance) {
-	    // Set counters to zero
-		int i = 0;
-		double lastRate = 0.0;
-		double tax = 0.0;
-		// For each tax band, charge the relative rate (current band rate minus previous band rate) to any income above
-        // the band threshold (being this threshold shifted by any given untaxed allowance)
-		while (i < bands.length && taxableIncome > (bands[i] + untaxedAllowance)) {
-			tax += (taxableIncome - (bands[i] + untaxedAllowance))*(rates[i] - lastRate);
-			lastRate = rates[i];
-			++i;
-		}
-		return tax;
-	}
+    /**
+     * Class to hold the bands and rates of a "banded percentage" in primitive arrays, together with the amount due at
+     * the lower limit of each band, so that computing a banded percentage only requires finding the band of the value
+     * and a single multiply-add
+     */
+    private static class BandTable implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final double[]  bands; // Lower limit of each band, in increasing order
+        private final double[]  rates; // Percentage applicable to each band
+        private final double[]  cumulativeDue; // Banded percentage at the lower limit of each band, with no untaxed allowance
+
+        BandTable(data.Government.BandsAndRates data) {
+            int n = data.bands.length;
+            bands = new double[n];
+            rates = new double[n];
+            cumulativeDue = new double[n];
+            for (int i = 0; i < n; i++) {
+                bands[i] = data.bands[i];
+                rates[i] = data.rates[i];
+                if (i > 0) cumulativeDue[i] = cumulativeDue[i - 1] + (bands[i] - bands[i - 1])*rates[i - 1];
+            }
+        }
+
+        /**
+         * Calculate a "banded percentage" on a value. A "banded percentage" is a way of calculating a non-linear
+         * function, f(x), widely used by HMRC. The domain of values of f(x) is split into bands: from 0 to x1, from x1
+         * to x2, etc. Each band is associated with a percentage p1, p2, etc. The final value of f(x) is the sum of the
+         * percentages of each band. So, for example, if x lies somewhere between x1 and x2, f(x) would be p1*x1 +
+         * p2*(x - x1)
+         *
+         * Note that bands are internally shifted to take into account any untaxed allowance. This is used take into
+         * account the particular personal allowance of a given household for income tax purposes. Given that the
+         * untaxed allowance for national insurance contributions is the same for every household, it is taken into
+         * account already in the bands' thresholds, rather than as an untaxed allowance within the call to this method
+         *
+         * @param taxableIncome The value to apply the banded percentage to
+         * @param untaxedAllowance Any untaxed allowance
+         * @return The banded percentage of "taxableIncome"
+         */
+        double bandedPercentage(double taxableIncome, double untaxedAllowance) {
+            double x = taxableIncome - untaxedAllowance;
+            // Find the number of bands whose lower limit is below x, i.e., the index of the first band not reached
+            int lo = 0;
+            int hi = bands.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bands[mid] < x) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (lo == 0) return 0.0;
+            return cumulativeDue[lo - 1] + (x - bands[lo - 1])*rates[lo - 1];
+        }
+    }
 }
@@ -4,6 +4,16 @@ package housing;
  * Wrapper for enabling python support via Py4j for HousingModel
  *
  * This is the class that will be launched by start-java-server.sh
+ *
+ * Python runs a single parameter set through gateway.jvm.housing.Model.exec, or a whole batch of them, concurrently
+ * and with a single round-trip, through gateway.jvm.housing.Model.execBatch, passing a double[][] with one row of
+ * exec parameters (without rndSeed) per set and an int[] with one seed per set. Batch results come in the binary
+ * layout described in utilities.BinaryResults, ready for numpy.frombuffer, or can be written by
+ * Model.execBatchToFile into a memory-mapped file, ready for numpy.memmap
+ *
+ * To avoid repeating a burn-in period common to several scenarios, Model.execWarmUp runs it once and returns a
+ * snapshot of the model state, from which Model.execForks branches one simulation per seed, and Model.execScenarios
+ * one simulation per housing.PolicyScenario, i.e., per schedule of policy interventions
  */
 
 import py4j.GatewayServer;
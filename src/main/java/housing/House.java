@@ -1,18 +1,20 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent a house with all its intrinsic characteristics.
  *
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class House implements Comparable<House> {
+public class House implements Comparable<House>, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private static int 	id_pool = 0;
+    private static final long serialVersionUID = 1L;
 
     public IHouseOwner  owner;
     public Household    resident;
@@ -30,10 +32,11 @@ public class House implements Comparable<House> {
     /**
      * Creates a house of quality quality in region region
      *
+     * @param id Unique identifier for the house, assigned by the simulation context
      * @param quality Quality band characterizing the house
      */
-	public House(int quality) {
-		this.id = ++id_pool;
+	public House(int id, int quality) {
+		this.id = id;
         this.owner = null;
         this.resident = null;
 		this.quality = quality;
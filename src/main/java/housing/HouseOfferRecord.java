@@ -17,23 +17,32 @@ public class HouseOfferRecord extends HousingMarketRecord {
 	//----- Fields -----//
 	//------------------//
 
+    private static final long serialVersionUID = 1L;
+
+    private SimulationContext               context;
     private House                           house;
+    private IHouseOwner                     seller; // Owner putting the house on the market
     private ArrayList<HouseBidderRecord>    matchedBids;
     private double                          initialListedPrice;
     private int                             tInitialListing; // Time of initial listing
     private double                          houseSpecificYield;
     private boolean                         BTLOffer; // True if buy-to-let investor offering an investment property, false if homeowner offering home (Note that rental offers are all set to false)
+    int                                     bookPosition = -1; // Position within the OfferBook of its market, -1 if not on the market
+    int                                     maxBookPosition = -1; // Position within the max-heap of the OfferBook of its market
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    public HouseOfferRecord(House house, double price, boolean BTLOffer) {
-        super(price);
+    public HouseOfferRecord(SimulationContext context, House house, IHouseOwner seller, double price,
+                            boolean BTLOffer) {
+        super(context, price);
+        this.context = context;
         this.house = house;
+        this.seller = seller;
         this.BTLOffer = BTLOffer;
         initialListedPrice = price;
-        tInitialListing = Model.getTime();
+        tInitialListing = context.getTime();
         matchedBids = new ArrayList<>(8); // TODO: Check if this initial size of 8 is good enough or can be improved
         recalculateHouseSpecificYield(price);
     }
@@ -52,8 +61,8 @@ public class HouseOfferRecord extends HousingMarketRecord {
     private void recalculateHouseSpecificYield(double price) {
         int q = house.getQuality();
         if (price > 0) {
-            houseSpecificYield = Model.rentalMarketStats.getAvFlowYieldForQuality(q)
-                    *Model.housingMarketStats.getExpAvSalePriceForQuality(q)
+            houseSpecificYield = context.rentalMarketStats.getAvFlowYieldForQuality(q)
+                    *context.housingMarketStats.getExpAvSalePriceForQuality(q)
                     /price;
         }
     }
@@ -92,6 +101,13 @@ public class HouseOfferRecord extends HousingMarketRecord {
 
     public House getHouse() { return house; }
 
+    /**
+     * @return Owner putting the house on the market. Note that this may differ from its current owner, as a sold house
+     * changes hands before its offer is removed from the market, and a buy-to-let house is put up for rent by its buyer
+     * before changing hands
+     */
+    public IHouseOwner getSeller() { return seller; }
+
     ArrayList<HouseBidderRecord> getMatchedBids() { return matchedBids; }
 
     public double getInitialListedPrice() { return initialListedPrice; }
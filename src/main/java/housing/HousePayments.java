@@ -0,0 +1,112 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to hold the houses of a household together with their payment agreements, i.e., the
+ * mortgages of the houses it owns and the rental agreement of the house it rents, if any. Entries
+ * are kept in parallel arrays sorted by house id, so that they are always visited in the same
+ * deterministic order as the TreeMap this class replaces, with the ids copied into a primitive
+ * array so that lookups do not need to dereference the houses. The arrays are only allocated when
+ * the first entry is added, as households in social housing have none, and are kept small, as most
+ * households have at most one entry.
+ *
+ * @author daniel, Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class HousePayments implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private int[]               ids; // Id of the house of each entry, in increasing order
+    private House[]             houses; // House of each entry
+    private PaymentAgreement[]  payments; // Payment agreement of each entry
+    private int                 size; // Number of entries
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * @return Payment agreement for house h, or null if there is none
+     */
+    public PaymentAgreement get(House h) {
+        int i = indexOf(h.id);
+        return (i >= 0) ? payments[i] : null;
+    }
+
+    public boolean containsKey(House h) { return indexOf(h.id) >= 0; }
+
+    /**
+     * Add an entry for house h, replacing its payment agreement if it already has one
+     */
+    void put(House h, PaymentAgreement payment) {
+        int i = indexOf(h.id);
+        if (i >= 0) {
+            payments[i] = payment;
+            return;
+        }
+        i = -(i + 1);
+        if (ids == null) {
+            ids = new int[2];
+            houses = new House[2];
+            payments = new PaymentAgreement[2];
+        } else if (size == ids.length) {
+            ids = Arrays.copyOf(ids, 2*size);
+            houses = Arrays.copyOf(houses, 2*size);
+            payments = Arrays.copyOf(payments, 2*size);
+        }
+        System.arraycopy(ids, i, ids, i + 1, size - i);
+        System.arraycopy(houses, i, houses, i + 1, size - i);
+        System.arraycopy(payments, i, payments, i + 1, size - i);
+        ids[i] = h.id;
+        houses[i] = h;
+        payments[i] = payment;
+        size++;
+    }
+
+    /**
+     * Remove the entry for house h, if any
+     */
+    void remove(House h) {
+        int i = indexOf(h.id);
+        if (i >= 0) removeAt(i);
+    }
+
+    /**
+     * Remove the entry at position i, shifting the following entries one position down
+     */
+    void removeAt(int i) {
+        size--;
+        System.arraycopy(ids, i + 1, ids, i, size - i);
+        System.arraycopy(houses, i + 1, houses, i, size - i);
+        System.arraycopy(payments, i + 1, payments, i, size - i);
+        houses[size] = null;
+        payments[size] = null;
+    }
+
+    public int size() { return size; }
+
+    /**
+     * @return House of the entry at position i, entries being sorted by house id
+     */
+    public House getHouse(int i) { return houses[i]; }
+
+    /**
+     * @return Payment agreement of the entry at position i, entries being sorted by house id
+     */
+    public PaymentAgreement getPayment(int i) { return payments[i]; }
+
+    /**
+     * @return Position of the entry for the house with the given id or, if there is none, -(insertion point + 1)
+     */
+    private int indexOf(int id) {
+        if (size == 0) return -1;
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+}
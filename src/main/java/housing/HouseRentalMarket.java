@@ -1,7 +1,5 @@
 package housing;
 
-import org.apache.commons.math3.random.MersenneTwister;
-
 /**************************************************************************************************
  * Class to represent the rental market
  *
@@ -9,30 +7,31 @@ import org.apache.commons.math3.random.MersenneTwister;
  *
  *************************************************************************************************/
 public class HouseRentalMarket extends HousingMarket {
+    private static final long serialVersionUID = 1L;
 
     //-------------------//
     //----- Methods -----//
     //-------------------//
 
-	public HouseRentalMarket(MersenneTwister prng) {
-	    super(prng);
+	public HouseRentalMarket(SimulationContext context) {
+	    super(context);
     }
 
     @Override
 	public void completeTransaction(HouseBidderRecord purchase, HouseOfferRecord sale) {
-        Model.rentalMarketStats.recordTransaction(sale);
+        context.rentalMarketStats.recordTransaction(sale);
 		sale.getHouse().rentalRecord = null;
 		purchase.getBidder().completeHouseRental(sale);
 		sale.getHouse().owner.completeHouseLet(sale);
-		Model.rentalMarketStats.recordSale(purchase, sale);
+		context.rentalMarketStats.recordSale(purchase, sale);
 	}
 
 	@Override
-	public HouseOfferRecord offer(House house, double price, boolean BTLOffer) {
+	public HouseOfferRecord offer(House house, IHouseOwner seller, double price, boolean BTLOffer) {
 		if(house.isOnMarket()) {
 			System.out.println("Got offer on rental market of house already on sale market");			
 		}
-		HouseOfferRecord hsr = super.offer(house, price, false);
+		HouseOfferRecord hsr = super.offer(house, seller, price, false);
 		house.putForRent(hsr);
 		return(hsr);
 	}
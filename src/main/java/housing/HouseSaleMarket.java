@@ -1,8 +1,6 @@
 package housing;
 
-import java.util.Iterator;
-
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.DoubleUnaryOperator;
 import utilities.PriorityQueue2D;
 
 /*******************************************************
@@ -12,12 +10,18 @@ import utilities.PriorityQueue2D;
  *
  *****************************************************/
 public class HouseSaleMarket extends HousingMarket {
+	private static final long serialVersionUID = 1L;
+
+	// Inverse of the minimum share of the offersPY queue a batch of repriced offers must reach for the frontier of
+	// uncovered offers to be rebuilt rather than updated offer by offer
+	private static final int                        MIN_QUEUE_SHARE_FOR_REBUILD = 4;
 
-	private Config                                  config = Model.config; // Passes the Model's configuration parameters object to a private field
+	private Config                                  config; // Passes the context's configuration parameters object to a private field
     private PriorityQueue2D<HousingMarketRecord>    offersPY;
 
-	HouseSaleMarket(MersenneTwister prng) {
-		super(prng);
+	HouseSaleMarket(SimulationContext context) {
+		super(context);
+		config = context.config;
 		offersPY = new PriorityQueue2D<>(new HousingMarketRecord.PYComparator());
 	}
 	
@@ -32,19 +36,19 @@ public class HouseSaleMarket extends HousingMarket {
 	 */
 	public void completeTransaction(HouseBidderRecord purchase, HouseOfferRecord sale) {
         // TODO: Revise if it makes sense to have recordTransaction as a separate method from recordSale
-		Model.housingMarketStats.recordTransaction(sale);
+		context.housingMarketStats.recordTransaction(sale);
 		sale.getHouse().saleRecord = null;
 		Household buyer = purchase.getBidder();
 		if(buyer == sale.getHouse().owner) return; // TODO: Shouldn't this if be the first line in this method?
 		sale.getHouse().owner.completeHouseSale(sale);
 		buyer.completeHousePurchase(sale);
-        Model.housingMarketStats.recordSale(purchase, sale);
+        context.housingMarketStats.recordSale(purchase, sale);
 		sale.getHouse().owner = buyer;
 	}
 
 	@Override
-	public HouseOfferRecord offer(House house, double price, boolean BTLOffer) {
-        HouseOfferRecord hsr = super.offer(house, price, BTLOffer);
+	public HouseOfferRecord offer(House house, IHouseOwner seller, double price, boolean BTLOffer) {
+        HouseOfferRecord hsr = super.offer(house, seller, price, BTLOffer);
         offersPY.add(hsr);
         house.putForSale(hsr);
         return(hsr);
@@ -64,26 +68,34 @@ public class HouseSaleMarket extends HousingMarket {
 		offersPY.add(hsr);
 	}
 
-    /**
-     * This method overrides the main simulation step in order to sort the price-yield priorities.
-     */
-    @Override
-    void clearMarket() {
-        // Before any use, priorities must be sorted by filling in the uncoveredElements TreeSet at the corresponding
-        // PriorityQueue2D. In particular, we sort here the price-yield priorities
-        offersPY.sortPriorities();
-        // Then continue with the normal HousingMarket clearMarket mechanism
-        super.clearMarket();
-    }
-	
+	/**
+	 * Overrides corresponding method at HousingMarket in order to take the repriced offers out of the offersPY queue
+	 * before changing their prices, and to put them back afterwards. Offers are moved one by one, keeping the frontier
+	 * of uncovered offers up to date, unless the batch is a large share of the queue, in which case they are moved
+	 * without sorting and the frontier is rebuilt once at the end
+	 */
+	@Override
+	void repriceSorted(HouseOfferRecord[] offers, int n, DoubleUnaryOperator newPrice) {
+		if (n*MIN_QUEUE_SHARE_FOR_REBUILD >= offersPY.size()) {
+			for (int i = 0; i < n; i++) offersPY.removeUnsorted(offers[i]);
+			super.repriceSorted(offers, n, newPrice);
+			for (int i = 0; i < n; i++) offersPY.addUnsorted(offers[i]);
+			offersPY.sortPriorities();
+		} else {
+			for (int i = 0; i < n; i++) offersPY.remove(offers[i]);
+			super.repriceSorted(offers, n, newPrice);
+			for (int i = 0; i < n; i++) offersPY.add(offers[i]);
+		}
+	}
+
 	@Override
 	protected HouseOfferRecord getBestOffer(HouseBidderRecord bid) {
         if (bid.isBTLBid()) { // BTL bidder (yield driven)
 			HouseOfferRecord bestOffer = (HouseOfferRecord)offersPY.peek(bid);
 			if (bestOffer != null) {
 					double minDownpayment = bestOffer.getPrice()*(1.0
-                            - Model.rentalMarketStats.getExpAvFlowYield()
-                            /(Model.centralBank.getInterestCoverRatioLimit(false)
+                            - context.rentalMarketStats.getExpAvFlowYield()
+                            /(context.centralBank.getInterestCoverRatioLimit(false)
                             *config.CENTRAL_BANK_BTL_STRESSED_INTEREST));
 					if (bid.getBidder().getBankBalance() >= minDownpayment) {
 						return bestOffer;
@@ -99,12 +111,11 @@ public class HouseSaleMarket extends HousingMarket {
      * Overrides corresponding method at HousingMarket in order to remove successfully matched and cleared offers from
      * the offersPY queue
      *
-     * @param record Iterator over the HousingMarketRecord objects contained in offersPQ
      * @param offer Offer to remove from queues
      */
 	@Override
-    void removeOfferFromQueues(Iterator<HousingMarketRecord> record, HouseOfferRecord offer) {
-        record.remove();
+    void removeOfferFromQueues(HouseOfferRecord offer) {
+        super.removeOfferFromQueues(offer);
         offersPY.remove(offer);
     }
 
@@ -115,5 +126,5 @@ public class HouseSaleMarket extends HousingMarket {
 	 * @param buyer The household that is making the bid.
 	 * @param maxPrice The maximum price that the household is willing to pay.
 	 ******************************************/
-    void BTLbid(Household buyer, double maxPrice) { bids.add(new HouseBidderRecord(buyer, maxPrice, true)); }
+    void BTLbid(Household buyer, double maxPrice) { bids.add(new HouseBidderRecord(context, buyer, maxPrice, true)); }
 }
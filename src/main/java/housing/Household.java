@@ -1,46 +1,38 @@
 package housing;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.io.Serializable;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.SplitMixRandom;
 
 /**************************************************************************************************
  * This represents a household who receives an income, consumes, saves and can buy, sell, let, and
- * invest in houses.
+ * invest in houses. Its age, bank balance, employment income and taxes, income percentile and
+ * bankruptcy flag are kept in its slot of the context's HouseholdTable.
  *
  * @author daniel, davidrpugh, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
 
-public class Household implements IHouseOwner {
+public class Household implements IHouseOwner, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private static int          id_pool;
+    private static final long serialVersionUID = 1L;
 
     public int                  id; // Only used for identifying households within the class MicroDataRecorder
-    private double              annualGrossEmploymentIncome;
-    private double              monthlyGrossEmploymentIncome;
     public HouseholdBehaviour   behaviour; // Behavioural plugin
+    final int                   slot; // Slot of this household in the context's HouseholdTable, holding its numeric state
 
-    double                      incomePercentile; // Fixed for the whole lifetime of the household
-    
-
-    
     private House                           home;
-    private Map<House, PaymentAgreement>    housePayments = new TreeMap<>(); // Houses owned and their payment agreements
-    private Config                          config = Model.config; // Passes the Model's configuration parameters object to a private field
-    private MersenneTwister                 prng;
-    private double                          age; // Age of the household representative person
-    private double                          bankBalance;
+    private HousePayments                   housePayments = new HousePayments(); // Houses owned and their payment agreements
+    private Config                          config; // Passes the context's configuration parameters object to a private field
+    private SimulationContext               context;
+    private HouseholdTable                  table; // Passes the context's household table to a private field
+    private SplitMixRandom                  prng; // Random stream of this household, reset at the start of each step
     private double                          monthlyGrossRentalIncome; // Keeps track of monthly rental income, as only tenants keep a reference to the rental contract, not landlords
     private boolean                         isFirstTimeBuyer;
-    private boolean                         isBankrupt;
     
     //GC: ++
     public int                  targetHouseQuality;
@@ -58,21 +50,26 @@ public class Household implements IHouseOwner {
     /**
      * Initialises behaviour (determine whether the household will be a BTL investor). Households start off in social
      * housing and with their "desired bank balance" in the bank
+     *
+     * @param ageAtBirth Age of the household representative person, drawn from the age at birth distribution
      */
-    public Household(MersenneTwister prng, double _incomeShockProb) {
-        this.prng = prng; // Passes the Model's random number generator to a private field of each instance
+    public Household(SimulationContext context, double ageAtBirth, double _incomeShockProb) {
+        this.context = context;
+        this.config = context.config;
+        this.table = context.householdTable;
+        this.prng = new SplitMixRandom(context.prng.nextLong()); // Seeds the household's own stream from the context's generator
+        slot = table.allocate();
         home = null;
         isFirstTimeBuyer = true;
-        isBankrupt = false;
-        id = ++id_pool;
-        age = data.Demographics.pdfHouseholdAgeAtBirth.nextDouble(this.prng);
-        incomePercentile = this.prng.nextDouble();
-        behaviour = new HouseholdBehaviour(this.prng, incomePercentile);
+        table.isBankrupt[slot] = false;
+        id = context.nextHouseholdId();
+        table.age[slot] = ageAtBirth;
+        table.incomePercentile[slot] = this.prng.nextDouble();
+        behaviour = new HouseholdBehaviour(context, prng, table.incomePercentile[slot]);
         // Find initial values for the annual and monthly gross employment income
-        annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
+        updateEmploymentIncome();
         //System.out.println("Age: " + age + "Percentile: " + incomePercentile + "Income: " + annualGrossEmploymentIncome );
-        monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
-        bankBalance = behaviour.getDesiredBankBalance(getAnnualGrossTotalIncome()); // Desired bank balance is used as initial value for actual bank balance
+        table.bankBalance[slot] = behaviour.getDesiredBankBalance(getAnnualGrossTotalIncome()); // Desired bank balance is used as initial value for actual bank balance
         monthlyGrossRentalIncome = 0.0;
         
         //GC:
@@ -91,16 +88,19 @@ public class Household implements IHouseOwner {
     //----- General methods -----//
 
     /**
-     * Main simulation step for each household. They age, receive employment and other forms of income, make their rent
-     * or mortgage payments, perform an essential consumption, make non-essential consumption decisions, manage their
-     * owned properties, and make their housing decisions depending on their current housing state:
-     * - Buy or rent if in social housing
-     * - Sell house if owner-occupier
-     * - Buy/sell/rent out properties if BTL investor
+     * First phase of the monthly step of each household, which only changes the state of the household itself, so that
+     * it can be run concurrently for all households. They age, receive employment and other forms of income, make their
+     * rent or mortgage payments, perform an essential consumption, make non-essential consumption decisions and close
+     * any debts already paid off. All random draws of this and the following phase come from the household's own random
+     * stream, which is reset at the start of each step to one depending only on the given seed and the household id, so
+     * that results do not depend on the number of threads nor on the order in which households are processed.
+     *
+     * @param streamSeed Seed of the random streams of all households for this time step
      */
-    public void step() {
+    void stepLocal(long streamSeed) {
+        prng.setStream(streamSeed, id);
     	// GC: update past bankruptcy status
-    	if (isBankrupt == true)
+    	if (table.isBankrupt[slot] == true)
     	{
     		wasBankrupt = true;
     	} else {
@@ -108,24 +108,24 @@ public class Household implements IHouseOwner {
     	}
     	//GC: end GC
     	
-        isBankrupt = false; // Delete bankruptcies from previous time step
-        age += 1.0/config.constants.MONTHS_IN_YEAR;
+        table.isBankrupt[slot] = false; // Delete bankruptcies from previous time step
+        table.age[slot] += 1.0/config.constants.MONTHS_IN_YEAR;
         
         // GC: update income percentile
         double rnd = this.prng.nextDouble();
         // Loss of income
 		if (rnd < incomeShockProb && Bankrupt == false && IncomeBoost == false)
 		{
-			incomePercentileTrue = incomePercentile;
-			incomePercentile = 0.01; 
+			incomePercentileTrue = table.incomePercentile[slot];
+			table.incomePercentile[slot] = 0.01; 
 			moBankrupt = 0;
 			Bankrupt = true;
 		} 
 		// Boost in income
-		if (rnd > (1 - incomeShockProb) && IncomeBoost == false && Bankrupt == false && incomePercentile <= 0.90)
+		if (rnd > (1 - incomeShockProb) && IncomeBoost == false && Bankrupt == false && table.incomePercentile[slot] <= 0.90)
 		{
-			incomePercentileTrue = incomePercentile;
-			incomePercentile = 0.90; 
+			incomePercentileTrue = table.incomePercentile[slot];
+			table.incomePercentile[slot] = 0.90; 
 			moBankrupt = 0;
 			IncomeBoost = true;
 		} 
@@ -135,7 +135,7 @@ public class Household implements IHouseOwner {
 		}
 		if ( moBankrupt == 24 && (Bankrupt == true || IncomeBoost == true)) 
 		{
-			incomePercentile = incomePercentileTrue;
+			table.incomePercentile[slot] = incomePercentileTrue;
 			moBankrupt = 0;
 			Bankrupt = false;
 			IncomeBoost = false;
@@ -144,8 +144,7 @@ public class Household implements IHouseOwner {
 		
         
         // Update annual and monthly gross employment income
-        annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
-        monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
+        updateEmploymentIncome();
         
         
         //System.out.println("***");
@@ -156,41 +155,53 @@ public class Household implements IHouseOwner {
         
         // Add monthly disposable income (net total income minus essential consumption and housing expenses) to bank balance
         // GC: check variability
-        bankBalance += getMonthlyDisposableIncome();
+        table.bankBalance[slot] += getMonthlyDisposableIncome();
         // Consume based on monthly disposable income (after essential consumption and house payments have been subtracted)
-        bankBalance -= behaviour.getDesiredConsumption(getBankBalance(), getAnnualGrossTotalIncome()); // Old implementation: if(isFirstTimeBuyer() || !isInSocialHousing()) bankBalance -= behaviour.getDesiredConsumption(getBankBalance(), getAnnualGrossTotalIncome());
+        table.bankBalance[slot] -= behaviour.getDesiredConsumption(getBankBalance(), getAnnualGrossTotalIncome()); // Old implementation: if(isFirstTimeBuyer() || !isInSocialHousing()) bankBalance -= behaviour.getDesiredConsumption(getBankBalance(), getAnnualGrossTotalIncome());
         
 
         
         // Deal with bankruptcies
         // TODO: Improve bankruptcy procedures (currently, simple cash injection), such as terminating contracts!
-        if (bankBalance < 0.0) {
-            bankBalance = 1.0;
-            isBankrupt = true;
+        if (table.bankBalance[slot] < 0.0) {
+            table.bankBalance[slot] = 1.0;
+            table.isBankrupt[slot] = true;
         }
-        // Manage owned properties and close debts on previously owned properties. To this end, first, create an
-        // iterator over the house-paymentAgreement pairs at the household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
+        // Close debts on previously owned properties. To this end, iterate over the house-paymentAgreement pairs at
+        // the household's housePayments object...
         House h;
         PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs...
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
-            // ...if the household is the owner of the house, then manage it
-            if (h.owner == this) {
-                manageHouse(h);
-            // ...otherwise, if the household is not the owner nor the resident, then it is an old debt due to
-            // the household's inability to pay the remaining principal off after selling a property...
-            } else if (h.resident != this) {
+        int i = 0;
+        while (i < housePayments.size()) {
+            h = housePayments.getHouse(i);
+            payment = housePayments.getPayment(i);
+            // ...if the household is not the owner nor the resident, then it is an old debt due to the household's
+            // inability to pay the remaining principal off after selling a property...
+            if (h.owner != this && h.resident != this) {
                 MortgageAgreement mortgage = (MortgageAgreement) payment;
                 // ...remove this type of houses from payments as soon as the household pays the debt off
                 if ((payment.nPayments == 0) & (mortgage.principal == 0.0)) {
-                    paymentIt.remove();
+                    housePayments.removeAt(i);
+                    continue;
                 }
             }
+            i++;
+        }
+    }
+
+    /**
+     * Second phase of the monthly step of each household, to be run sequentially for all households in id order, as it
+     * has effects on the markets and on other households. Households manage their owned properties, i.e., they put them
+     * up for sale or rent and reprice them, and then make their housing decisions depending on their current housing
+     * state, after any changes to their properties and once any tenancy due to end has ended:
+     * - Buy or rent if in social housing or at the end of a tenancy
+     * - Buy an investment property if BTL investor already owning a home
+     */
+    void stepMarkets() {
+        // Manage owned properties
+        for (int i = 0; i < housePayments.size(); i++) {
+            House h = housePayments.getHouse(i);
+            if (h.owner == this) manageHouse(h);
         }
         // Make housing decisions depending on current housing state
         if (isInSocialHousing()) {
@@ -199,18 +210,39 @@ public class Household implements IHouseOwner {
             if (housePayments.get(home).nPayments == 0) { // End of rental period for this tenant
                 endTenancy();
                 bidForAHome();
-            }            
+            }
         } else if (behaviour.isPropertyInvestor()) { // Only BTL investors who already own a home enter here
             double price = behaviour.btlPurchaseBid(this);
-            Model.householdStats.countBTLBidsAboveExpAvSalePrice(price);
+            context.householdStats.countBTLBidsAboveExpAvSalePrice(price);
             if (behaviour.decideToBuyInvestmentProperty(this)) {
-                Model.houseSaleMarket.BTLbid(this, price);
+                context.houseSaleMarket.BTLbid(this, price);
             }
         } else if (!isHomeowner()){
             System.out.println("Strange: this household is not a type I recognize");
         }
     }
 
+    /**
+     * Draw the annual gross employment income of the household within its row of the income data, and update the
+     * monthly one accordingly. The row is only looked up again if the income percentile has changed, due to an income
+     * shock or to its end, or if the household has aged beyond the age interval of its row. Income shocks to the data
+     * scale the income bounds of the rows but not which row corresponds to an age and percentile, so the cached row
+     * remains valid through them.
+     */
+    private void updateEmploymentIncome() {
+        data.EmploymentIncome employmentIncome = context.employmentIncome;
+        double boundAge = employmentIncome.getBoundAge(table.age[slot]);
+        if (boundAge > table.incomeRowAgeLimit[slot] || table.incomePercentile[slot] != table.incomeRowPercentile[slot]) {
+            table.incomeRow[slot] = employmentIncome.getIncomeRow(boundAge, table.incomePercentile[slot]);
+            table.incomeRowPercentile[slot] = table.incomePercentile[slot];
+            table.incomeRowAgeLimit[slot] = employmentIncome.getAgeLimit(boundAge);
+        }
+        table.annualGrossEmploymentIncome[slot] = employmentIncome.drawIncome(table.incomeRow[slot], prng);
+        table.monthlyGrossEmploymentIncome[slot] = table.annualGrossEmploymentIncome[slot]/config.constants.MONTHS_IN_YEAR;
+        table.employmentIncomeTaxes[slot] = context.government.incomeTaxDue(table.annualGrossEmploymentIncome[slot]) // Employment income tax
+                + context.government.class1NICsDue(table.annualGrossEmploymentIncome[slot]); // National insurance contributions
+    }
+
     /**
      * Subtracts the essential, necessary consumption and housing expenses (mortgage and rental payments) from the net
      * total income (employment income, property income, financial returns minus taxes)
@@ -222,33 +254,32 @@ public class Household implements IHouseOwner {
         // TODO: ESSENTIAL_CONSUMPTION_FRACTION is not explained in the paper, all support is said to be consumed
         monthlyDisposableIncome -= config.ESSENTIAL_CONSUMPTION_FRACTION*config.GOVERNMENT_MONTHLY_INCOME_SUPPORT;
         // Subtract housing consumption
-        for(PaymentAgreement payment: housePayments.values()) {
-            monthlyDisposableIncome -= payment.makeMonthlyPayment();
+        for(int i = 0; i < housePayments.size(); i++) {
+            monthlyDisposableIncome -= housePayments.getPayment(i).makeMonthlyPayment();
         }
         return monthlyDisposableIncome;
     }
 
     /**
      * Subtracts the monthly aliquot part of all due taxes from the monthly gross total income. Note that only income
-     * tax on employment income and national insurance contributions are implemented!
+     * tax on employment income and national insurance contributions are implemented! These are computed whenever the
+     * employment income is updated.
      */
     double getMonthlyNetTotalIncome() {
         // TODO: Note that this implies there is no tax on rental income nor on bank balance returns
         return getMonthlyGrossTotalIncome()
-                - (Model.government.incomeTaxDue(annualGrossEmploymentIncome)   // Employment income tax
-                + Model.government.class1NICsDue(annualGrossEmploymentIncome))  // National insurance contributions
-                /config.constants.MONTHS_IN_YEAR;
+                - table.employmentIncomeTaxes[slot]/config.constants.MONTHS_IN_YEAR;
     }
 
     /**
      * Adds up all sources of (gross) income on a monthly basis: employment, property, returns on financial wealth
      */
     public double getMonthlyGrossTotalIncome() {
-        if (bankBalance > 0.0) {
-            return monthlyGrossEmploymentIncome + monthlyGrossRentalIncome
-                    + bankBalance*config.RETURN_ON_FINANCIAL_WEALTH;
+        if (table.bankBalance[slot] > 0.0) {
+            return table.monthlyGrossEmploymentIncome[slot] + monthlyGrossRentalIncome
+                    + table.bankBalance[slot]*config.RETURN_ON_FINANCIAL_WEALTH;
         } else {
-            return monthlyGrossEmploymentIncome + monthlyGrossRentalIncome;
+            return table.monthlyGrossEmploymentIncome[slot] + monthlyGrossRentalIncome;
         }
     }
 
@@ -274,11 +305,11 @@ public class Household implements IHouseOwner {
         if(forSale != null) { // reprice house for sale
         	
         	//GC: new stuff
-        	//int deltaT = Model.t - forSale.gettInitialListing();
+        	//int deltaT = context.t - forSale.gettInitialListing();
             //if(deltaT > 36)
             if(false)
         	{
-            	Model.houseSaleMarket.removeOffer(forSale);
+            	context.houseSaleMarket.removeOffer(forSale);
             } 
             //GC: end new stuff
             else {
@@ -286,25 +317,25 @@ public class Household implements IHouseOwner {
         	
 	            newPrice = behaviour.rethinkHouseSalePrice(forSale);
 	            if(newPrice > mortgageFor(house).principal) {
-	                Model.houseSaleMarket.updateOffer(forSale, newPrice);
+	                context.houseSaleMarket.updateOffer(forSale, newPrice);
 	            } else {
-	                Model.houseSaleMarket.removeOffer(forSale);
+	                context.houseSaleMarket.removeOffer(forSale);
 	                // TODO: Is first condition redundant?
 	                if(house  != home && house.resident == null) {
-	                    Model.houseRentalMarket.offer(house, buyToLetRent(house), false);
+	                    context.houseRentalMarket.offer(house, this, buyToLetRent(house), false);
 	                }
 	            }
 	            
             }
         } else if(decideToSellHouse(house)) { // put house on market?
-            if(house.isOnRentalMarket()) Model.houseRentalMarket.removeOffer(house.getRentalRecord());
+            if(house.isOnRentalMarket()) context.houseRentalMarket.removeOffer(house.getRentalRecord());
             putHouseForSale(house);
         }
         
         forRent = house.getRentalRecord();
         if(forRent != null) { // reprice house for rent
             newPrice = behaviour.rethinkBuyToLetRent(forRent);
-            Model.houseRentalMarket.updateOffer(forRent, newPrice);
+            context.houseRentalMarket.updateOffer(forRent, newPrice);
         }        
     }
 
@@ -326,9 +357,9 @@ public class Household implements IHouseOwner {
             pricePaid = 0.0;
         }
         if (h == home) {
-            Model.houseSaleMarket.offer(h, behaviour.getInitialSalePrice(h.getQuality(), principal, pricePaid), false);
+            context.houseSaleMarket.offer(h, this, behaviour.getInitialSalePrice(h.getQuality(), principal, pricePaid), false);
         } else {
-            Model.houseSaleMarket.offer(h, behaviour.getInitialSalePrice(h.getQuality(), principal, pricePaid), true);
+            context.houseSaleMarket.offer(h, this, behaviour.getInitialSalePrice(h.getQuality(), principal, pricePaid), true);
         }
     }
 
@@ -353,12 +384,12 @@ public class Household implements IHouseOwner {
                 endTenancy();
             }
         }
-        MortgageAgreement mortgage = Model.bank.requestLoan(this, sale.getPrice(), behaviour.decideDownPayment(this,sale.getPrice()), home == null, sale.getHouse());
+        MortgageAgreement mortgage = context.bank.requestLoan(this, sale.getPrice(), behaviour.decideDownPayment(this,sale.getPrice()), home == null, sale.getHouse());
         if(mortgage == null) {
             // TODO: need to either provide a way for house sales to fall through or to ensure that pre-approvals are always satisfiable
             System.out.println("Can't afford to buy house: strange");
-            System.out.println("Bank balance is "+bankBalance);
-            System.out.println("Annual income is "+ monthlyGrossEmploymentIncome *config.constants.MONTHS_IN_YEAR);
+            System.out.println("Bank balance is "+table.bankBalance[slot]);
+            System.out.println("Annual income is "+ table.monthlyGrossEmploymentIncome[slot] *config.constants.MONTHS_IN_YEAR);
             if(isRenting()) System.out.println("Is renting");
             if(isHomeowner()) System.out.println("Is homeowner");
             if(isInSocialHousing()) System.out.println("Is homeless");
@@ -367,13 +398,13 @@ public class Household implements IHouseOwner {
             System.out.println("House owner = "+ sale.getHouse().owner);
             System.out.println("me = "+this);
         } else {
-            bankBalance -= mortgage.downPayment;
+            table.bankBalance[slot] -= mortgage.downPayment;
             housePayments.put(sale.getHouse(), mortgage);
             if (home == null) { // move in to house
                 home = sale.getHouse();
                 sale.getHouse().resident = this;
             } else if (sale.getHouse().resident == null) { // put empty buy-to-let house on rental market
-                Model.houseRentalMarket.offer(sale.getHouse(), buyToLetRent(sale.getHouse()), false);
+                context.houseRentalMarket.offer(sale.getHouse(), this, buyToLetRent(sale.getHouse()), false);
             }
             isFirstTimeBuyer = false;
         }
@@ -384,10 +415,10 @@ public class Household implements IHouseOwner {
      ********************************************************/
     public void completeHouseSale(HouseOfferRecord sale) {
         // First, receive money from sale
-        bankBalance += sale.getPrice();
+        table.bankBalance[slot] += sale.getPrice();
         // Second, find mortgage object and pay off as much outstanding debt as possible given bank balance
         MortgageAgreement mortgage = mortgageFor(sale.getHouse());
-        bankBalance -= mortgage.payoff(bankBalance);
+        table.bankBalance[slot] -= mortgage.payoff(table.bankBalance[slot]);
         // Third, if there is no more outstanding debt, remove the house from the household's housePayments object
         if (mortgage.nPayments == 0) {
             housePayments.remove(sale.getHouse());
@@ -396,7 +427,7 @@ public class Household implements IHouseOwner {
         }
         // Fourth, if the house is still being offered on the rental market, withdraw the offer
         if (sale.getHouse().isOnRentalMarket()) {
-            Model.houseRentalMarket.removeOffer(sale);
+            context.houseRentalMarket.removeOffer(sale);
         }
         // Fifth, if the house is the household's home, then the household moves out and becomes temporarily homeless...
         if (sale.getHouse() == home) {
@@ -428,7 +459,7 @@ public class Household implements IHouseOwner {
 //        if(h.resident != null) System.out.println("Strange: renting out a house that has a resident");        
 //        if(h.resident != null && h.resident == h.owner) System.out.println("Strange: renting out a house that belongs to a homeowner");        
         if(h.isOnRentalMarket()) System.out.println("Strange: got endOfLettingAgreement on house on rental market");
-        if(!h.isOnMarket()) Model.houseRentalMarket.offer(h, buyToLetRent(h), false);
+        if(!h.isOnMarket()) context.houseRentalMarket.offer(h, this, buyToLetRent(h), false);
     }
 
     /**********************************************************
@@ -492,18 +523,18 @@ public class Household implements IHouseOwner {
      ********************************************************/
     private void bidForAHome() {
         // Find household's desired housing expenditure
-        double price = behaviour.getDesiredPurchasePrice(monthlyGrossEmploymentIncome);
+        double price = behaviour.getDesiredPurchasePrice(table.monthlyGrossEmploymentIncome[slot]);
         // Cap this expenditure to the maximum mortgage available to the household
-        price = Math.min(price, Model.bank.getMaxMortgage(this, true));
+        price = Math.min(price, context.bank.getMaxMortgage(this, true));
         // Record the bid on householdStats for counting the number of bids above exponential moving average sale price
-        Model.householdStats.countNonBTLBidsAboveExpAvSalePrice(price);
+        context.householdStats.countNonBTLBidsAboveExpAvSalePrice(price);
         // Compare costs to decide whether to buy or rent...
         if (behaviour.decideRentOrPurchase(this, price) && price > 0) {
             // ... if buying, bid in the house sale market for the capped desired price
-            Model.houseSaleMarket.bid(this, price);
+            context.houseSaleMarket.bid(this, price);
         } else {
             // ... if renting, bid in the house rental market for the desired rent price
-            Model.houseRentalMarket.bid(this, behaviour.desiredRent(monthlyGrossEmploymentIncome));
+            context.houseRentalMarket.bid(this, behaviour.desiredRent(table.monthlyGrossEmploymentIncome[slot]));
         }
     }
     
@@ -528,15 +559,15 @@ public class Household implements IHouseOwner {
     @Override
     public void completeHouseLet(HouseOfferRecord sale) {
         if(sale.getHouse().isOnMarket()) {
-            Model.houseSaleMarket.removeOffer(sale.getHouse().getSaleRecord());
+            context.houseSaleMarket.removeOffer(sale.getHouse().getSaleRecord());
         }
         monthlyGrossRentalIncome += sale.getPrice();
     }
 
     private double buyToLetRent(House h) {
         return(behaviour.buyToLetRent(
-                Model.rentalMarketStats.getExpAvSalePriceForQuality(h.getQuality()),
-                Model.rentalMarketStats.getExpAvDaysOnMarket(), h));
+                context.rentalMarketStats.getExpAvSalePriceForQuality(h.getQuality()),
+                context.rentalMarketStats.getExpAvDaysOnMarket(), h));
     }
 
     /////////////////////////////////////////////////////////
@@ -556,21 +587,18 @@ public class Household implements IHouseOwner {
             System.out.println("Strange: I'm transferring all my wealth to myself");
             System.exit(0);
         }
-        // Create an iterator over the house-paymentAgreement pairs at the deceased household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
         House h;
         PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
+        // Iterate over the house-paymentAgreement pairs at the deceased household's housePayments object, in house id
+        // order, removing each of them once dealt with
+        while (housePayments.size() > 0) {
+            h = housePayments.getHouse(0);
+            payment = housePayments.getPayment(0);
             // If the deceased household owns the house, then...
             if (h.owner == this) {
                 // ...first, withdraw the house from any market where it is currently being offered
-                if (h.isOnRentalMarket()) Model.houseRentalMarket.removeOffer(h.getRentalRecord());
-                if (h.isOnMarket()) Model.houseSaleMarket.removeOffer(h.getSaleRecord());
+                if (h.isOnRentalMarket()) context.houseRentalMarket.removeOffer(h.getRentalRecord());
+                if (h.isOnMarket()) context.houseSaleMarket.removeOffer(h.getSaleRecord());
                 // ...then, if there is a resident in the house...
                 if (h.resident != null) {
                     // ...and this resident is different from the deceased household, then this resident must be a
@@ -592,13 +620,13 @@ public class Household implements IHouseOwner {
             }
             // If payment agreement is a mortgage, then try to pay off as much as possible from the deceased household's bank balance
             if (payment instanceof MortgageAgreement) {
-                bankBalance -= ((MortgageAgreement) payment).payoff();
+                table.bankBalance[slot] -= ((MortgageAgreement) payment).payoff();
             }
             // Remove the house-paymentAgreement entry from the deceased household's housePayments object
-            paymentIt.remove(); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
+            housePayments.removeAt(0); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
         }
         // Finally, transfer all remaining liquid wealth to the beneficiary household
-        beneficiary.bankBalance += Math.max(0.0, bankBalance);
+        table.bankBalance[beneficiary.slot] += Math.max(0.0, table.bankBalance[slot]);
     }
     
     /**
@@ -610,7 +638,7 @@ public class Household implements IHouseOwner {
      */
     private void inheritHouse(House h) {
         // Create a null (zero payments) mortgage
-        MortgageAgreement nullMortgage = new MortgageAgreement(this,false);
+        MortgageAgreement nullMortgage = new MortgageAgreement(context.bank, this, false);
         nullMortgage.nPayments = 0;
         nullMortgage.downPayment = 0.0;
         nullMortgage.monthlyInterestRate = 0.0;
@@ -641,7 +669,7 @@ public class Household implements IHouseOwner {
                 putHouseForSale(h);
             // ...or rent it out
             } else if(h.resident == null) {
-                Model.houseRentalMarket.offer(h, buyToLetRent(h), false);
+                context.houseRentalMarket.offer(h, this, buyToLetRent(h), false);
             }
         // If being an owner-occupier, put inherited house for sale
         } else {
@@ -651,7 +679,7 @@ public class Household implements IHouseOwner {
 
     //----- Helpers -----//
 
-    public double getAge() { return age; }
+    public double getAge() { return table.age[slot]; }
 
     public boolean isHomeowner() {
         if(home == null) return(false);
@@ -667,7 +695,7 @@ public class Household implements IHouseOwner {
 
     boolean isFirstTimeBuyer() { return isFirstTimeBuyer; }
 
-    public boolean isBankrupt() { return isBankrupt; }
+    public boolean isBankrupt() { return table.isBankrupt[slot]; }
     
     // GC:
     
@@ -675,23 +703,23 @@ public class Household implements IHouseOwner {
     
     // GC: END
 
-    public double getBankBalance() { return bankBalance; } // ***
+    public double getBankBalance() { return table.bankBalance[slot]; } // ***
 
     public House getHome() { return home; }
 
-    public Map<House, PaymentAgreement> getHousePayments() { return housePayments; }
+    public HousePayments getHousePayments() { return housePayments; }
 
-    public double getAnnualGrossEmploymentIncome() { return annualGrossEmploymentIncome; }
+    public double getAnnualGrossEmploymentIncome() { return table.annualGrossEmploymentIncome[slot]; }
 
-    public double getMonthlyGrossEmploymentIncome() { return monthlyGrossEmploymentIncome; }
+    public double getMonthlyGrossEmploymentIncome() { return table.monthlyGrossEmploymentIncome[slot]; }
 
     /***
      * @return Number of properties this household currently has on the sale market
      */
     public int nPropertiesForSale() {
         int n=0;
-        for(House h : housePayments.keySet()) {
-            if(h.isOnMarket()) ++n;
+        for(int i = 0; i < housePayments.size(); i++) {
+            if(housePayments.getHouse(i).isOnMarket()) ++n;
         }
         return(n);
     }
@@ -703,7 +731,7 @@ public class Household implements IHouseOwner {
      */
     double getHomeEquity() {
         if(!isHomeowner()) return(0.0);
-        return Model.housingMarketStats.getExpAvSalePriceForQuality(home.getQuality())
+        return context.housingMarketStats.getExpAvSalePriceForQuality(home.getQuality())
                 - mortgageFor(home).principal;
     }
     
@@ -727,7 +755,7 @@ public class Household implements IHouseOwner {
     
     public void shock_bankBalance(float shock_size)
     {
-    	bankBalance *= shock_size;
+    	table.bankBalance[slot] *= shock_size;
     	
     	return;
     }
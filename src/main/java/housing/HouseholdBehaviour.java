@@ -1,7 +1,9 @@
 package housing;
 
+import java.io.Serializable;
+
 import org.apache.commons.math3.distribution.LogNormalDistribution;
-import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
 
 /**************************************************************************************************
  * Class to implement the behavioural decisions made by households
@@ -9,14 +11,17 @@ import org.apache.commons.math3.random.MersenneTwister;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class HouseholdBehaviour {
+public class HouseholdBehaviour implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private Config                  config = Model.config; // Passes the Model's configuration parameters object to a private field
-    private MersenneTwister	        prng;
+    private static final long serialVersionUID = 1L;
+
+    private Config                  config; // Passes the context's configuration parameters object to a private field
+    private SimulationContext       context;
+    private RandomGenerator	        prng;
     private boolean                 BTLInvestor;
     private double                  BTLCapGainCoefficient; // Sensitivity of BTL investors to capital gain, 0.0 cares only about rental yield, 1.0 cares only about cap gain
     
@@ -36,9 +41,12 @@ public class HouseholdBehaviour {
      * investor "gene" (provided its income percentile is above a certain minimum), and whether the household will be a
      * fundamentalist or a trend follower investor (provided it has received the BTL investor gene)
 	 *
+	 * @param prng Random stream of the household
 	 * @param incomePercentile Fixed income percentile for the household (assumed constant over a lifetime)
      */
-	HouseholdBehaviour(MersenneTwister prng, double incomePercentile) {
+	HouseholdBehaviour(SimulationContext context, RandomGenerator prng, double incomePercentile) {
+		this.context = context;
+		this.config = context.config;
 		this.prng = prng;  // initialize the random number generator
 
         // Set downpayment distributions for both first-time-buyers and owner-occupiers
@@ -131,11 +139,11 @@ public class HouseholdBehaviour {
 	 */
 	double getInitialSalePrice(int quality, double principal, double pricePaid) {
         double exponent = config.SALE_MARKUP
-                + Math.log(Model.housingMarketStats.getExpAvSalePriceForQuality(quality) + 1.0)
-                - config.SALE_WEIGHT_DAYS_ON_MARKET*Math.log((Model.housingMarketStats.getExpAvDaysOnMarket() + 1.0)/(config.constants.DAYS_IN_MONTH + 1.0))
+                + Math.log(context.housingMarketStats.getExpAvSalePriceForQuality(quality) + 1.0)
+                - config.SALE_WEIGHT_DAYS_ON_MARKET*Math.log((context.housingMarketStats.getExpAvDaysOnMarket() + 1.0)/(config.constants.DAYS_IN_MONTH + 1.0))
                 + config.SALE_EPSILON*prng.nextGaussian();
         // TODO: ExpAv days on market could be computed for each quality band so as to use here only the correct one
-        //System.out.println(Model.housingMarketStats.getExpAvSalePriceForQuality(quality));
+        //System.out.println(context.housingMarketStats.getExpAvSalePriceForQuality(quality));
         //System.out.println(Math.max(Math.exp(exponent), principal));
         //System.out.println("***");
         //GC: added
@@ -160,8 +168,8 @@ public class HouseholdBehaviour {
 	boolean decideToSellHome() {
         // TODO: This 'if' implies BTL agents never sell their homes, need to explain in paper!
         return !isPropertyInvestor() && (prng.nextDouble() < config.derivedParams.MONTHLY_P_SELL*(1.0
-                + config.DECISION_TO_SELL_ALPHA*(config.DECISION_TO_SELL_HPC - (double)Model.houseSaleMarket.getnHousesOnMarket()/Model.households.size())
-                + config.DECISION_TO_SELL_BETA*(config.DECISION_TO_SELL_INTEREST - Model.bank.getMortgageInterestRate())));
+                + config.DECISION_TO_SELL_ALPHA*(config.DECISION_TO_SELL_HPC - (double)context.houseSaleMarket.getnHousesOnMarket()/context.households.size())
+                + config.DECISION_TO_SELL_BETA*(config.DECISION_TO_SELL_INTEREST - context.bank.getMortgageInterestRate())));
     }
 
 	/**
@@ -181,13 +189,13 @@ public class HouseholdBehaviour {
 		if (me.isFirstTimeBuyer()) {
 		    // Since the function of the HPI is to move the down payments distribution upwards or downwards to
             // accommodate current price levels, and the distribution is itself aggregate, we use the aggregate HPI
-			downpayment = Model.housingMarketStats.getHPI()*downpaymentDistFTB.inverseCumulativeProbability(Math.max(0.0,
+			downpayment = context.housingMarketStats.getHPI()*downpaymentDistFTB.inverseCumulativeProbability(Math.max(0.0,
                     (me.incomePercentile - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
 		} else if (isPropertyInvestor()) {
 			downpayment = housePrice*(Math.max(0.0,
 					config.DOWNPAYMENT_BTL_MEAN + config.DOWNPAYMENT_BTL_EPSILON * prng.nextGaussian()));
 		} else {
-			downpayment = Model.housingMarketStats.getHPI()*downpaymentDistOO.inverseCumulativeProbability(Math.max(0.0,
+			downpayment = context.housingMarketStats.getHPI()*downpaymentDistOO.inverseCumulativeProbability(Math.max(0.0,
                     (me.incomePercentile - config.DOWNPAYMENT_MIN_INCOME)/(1 - config.DOWNPAYMENT_MIN_INCOME)));
 		}
 		*/
@@ -247,9 +255,9 @@ public class HouseholdBehaviour {
 	 */
     boolean decideRentOrPurchase(Household me, double purchasePrice) {
         if(isPropertyInvestor()) return(true);
-        MortgageAgreement mortgageApproval = Model.bank.requestApproval(me, purchasePrice,
+        MortgageAgreement mortgageApproval = context.bank.requestApproval(me, purchasePrice,
                 decideDownPayment(me, purchasePrice), true);
-        int newHouseQuality = Model.housingMarketStats.getMaxQualityForPrice(purchasePrice);
+        int newHouseQuality = context.housingMarketStats.getMaxQualityForPrice(purchasePrice);
         if (newHouseQuality < 0) return false; // can't afford a house anyway
         
         // GC: +++
@@ -263,7 +271,7 @@ public class HouseholdBehaviour {
         
         //double costOfHouse = mortgageApproval.monthlyPayment*config.constants.MONTHS_IN_YEAR
 				//- purchasePrice*getLongTermHPAExpectation();
-        //double costOfRent = Model.rentalMarketStats.getExpAvSalePriceForQuality(newHouseQuality)
+        //double costOfRent = context.rentalMarketStats.getExpAvSalePriceForQuality(newHouseQuality)
         //        *config.constants.MONTHS_IN_YEAR;
         
         
@@ -282,7 +290,7 @@ public class HouseholdBehaviour {
         double costOfHouse = (mortgageApproval.monthlyPayment*config.constants.MONTHS_IN_YEAR)*config.MORTGAGE_DURATION_YEARS
         		- purchasePrice
 				+ mortgageApproval.downPayment;
-        double costOfRent = Model.rentalMarketStats.getExpAvSalePriceForQuality(newHouseQuality)
+        double costOfRent = context.rentalMarketStats.getExpAvSalePriceForQuality(newHouseQuality)
                 *config.constants.MONTHS_IN_YEAR*config.MORTGAGE_DURATION_YEARS;
         //END GC
         return prng.nextDouble() < sigma(config.SENSITIVITY_RENT_OR_PURCHASE*(costOfRent*(1.0
@@ -323,7 +331,7 @@ public class HouseholdBehaviour {
         // ...find the mortgage agreement for this property
         MortgageAgreement mortgage = me.mortgageFor(h);
         // ...find its current (fair market value) sale price
-        double currentMarketPrice = Model.housingMarketStats.getExpAvSalePriceForQuality(h.getQuality());
+        double currentMarketPrice = context.housingMarketStats.getExpAvSalePriceForQuality(h.getQuality());
         // ...find equity, or assets minus liabilities
         double equity = Math.max(0.01, currentMarketPrice - mortgage.principal); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
@@ -337,7 +345,7 @@ public class HouseholdBehaviour {
 		double expectedEquityYield;
 		if(config.BTL_YIELD_SCALING) {
 			expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*currentRentalYield
-                    + BTLCapGainCoefficient*(Model.rentalMarketStats.getLongTermExpAvFlowYield()
+                    + BTLCapGainCoefficient*(context.rentalMarketStats.getLongTermExpAvFlowYield()
 					+ getLongTermHPAExpectation())) - mortgageRate;
 		} else {
 			expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*currentRentalYield
@@ -370,28 +378,28 @@ public class HouseholdBehaviour {
         // TODO: This mechanism and its parameter are not declared in the article! Any reference for the value of the parameter?
         if (me.getBankBalance() < getDesiredBankBalance(me.getAnnualGrossTotalIncome())*config.BTL_CHOICE_MIN_BANK_BALANCE) { return false; }
         // ...find maximum price (maximum mortgage) the household could pay
-        double maxPrice = Model.bank.getMaxMortgage(me, false);
+        double maxPrice = context.bank.getMaxMortgage(me, false);
         // ...never buy if that maximum price is below the average price for the lowest quality
-        if (maxPrice < Model.housingMarketStats.getExpAvSalePriceForQuality(0)) { return false; }
+        if (maxPrice < context.housingMarketStats.getExpAvSalePriceForQuality(0)) { return false; }
 
         // Find the expected equity yield rate for a hypothetical house maximising the leverage available to the
         // household and assuming an average rental yield (over all qualities). This is found as a weighted mix of both
         // rental yield and capital gain times the leverage
         // ...find mortgage with maximum leverage by requesting maximum mortgage with minimum downpayment
-        MortgageAgreement mortgage = Model.bank.requestApproval(me, maxPrice, 0.0, false);
+        MortgageAgreement mortgage = context.bank.requestApproval(me, maxPrice, 0.0, false);
         // ...find equity, or assets minus liabilities (which, initially, is simply the downpayment)
         double equity = Math.max(0.01, mortgage.downPayment); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
         double leverage = mortgage.purchasePrice/equity;
         // ...find the expected rental yield as an (exponential) average over all house qualities
-        double rentalYield = Model.rentalMarketStats.getExpAvFlowYield();
+        double rentalYield = context.rentalMarketStats.getExpAvFlowYield();
         // ...find the mortgage rate (pounds paid a year per pound of equity)
         double mortgageRate = mortgage.nextPayment()*config.constants.MONTHS_IN_YEAR/equity;
         // ...finally, find expected equity yield, or yield on equity
         double expectedEquityYield;
         if(config.BTL_YIELD_SCALING) {
             expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*rentalYield
-                    + BTLCapGainCoefficient*(Model.rentalMarketStats.getLongTermExpAvFlowYield()
+                    + BTLCapGainCoefficient*(context.rentalMarketStats.getLongTermExpAvFlowYield()
                     + getLongTermHPAExpectation())) - mortgageRate;
         } else {
             expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*rentalYield
@@ -415,11 +423,11 @@ public class HouseholdBehaviour {
         // TODO: price as BTL investors buy all supply till prices are too high for everybody. Fairly unclear mechanism,
         // TODO: check for removal!
     	//GC: original:
-        //return(Math.min(Model.bank.getMaxMortgage(me, false),
-        //        1.1*Model.housingMarketStats.getExpAvSalePriceForQuality(config.N_QUALITY-1)));
+        //return(Math.min(context.bank.getMaxMortgage(me, false),
+        //        1.1*context.housingMarketStats.getExpAvSalePriceForQuality(config.N_QUALITY-1)));
     	//GC: modified
-    	double bid = Math.min(Model.bank.getMaxMortgage(me, false),
-    	               1.1*Model.housingMarketStats.getExpAvSalePriceForQuality(config.N_QUALITY-1));
+    	double bid = Math.min(context.bank.getMaxMortgage(me, false),
+    	               1.1*context.housingMarketStats.getExpAvSalePriceForQuality(config.N_QUALITY-1));
     	return Math.max(0, bid);
     }
 
@@ -438,7 +446,7 @@ public class HouseholdBehaviour {
                 + config.RENT_EPSILON * prng.nextGaussian();
 		double result = Math.exp(exponent);
         // TODO: The following contains a fudge (config.RENT_MAX_AMORTIZATION_PERIOD) to keep rental yield up
-		double minAcceptable = Model.housingMarketStats.getExpAvSalePriceForQuality(h.getQuality())
+		double minAcceptable = context.housingMarketStats.getExpAvSalePriceForQuality(h.getQuality())
                 /(config.RENT_MAX_AMORTIZATION_PERIOD*config.constants.MONTHS_IN_YEAR);
 		if (result < minAcceptable) result = minAcceptable;
 		return result;
@@ -466,7 +474,7 @@ public class HouseholdBehaviour {
 	private double getLongTermHPAExpectation() {
 		// Dampening or multiplier factor, depending on its value being <1 or >1, for the current trend of HPA when
 		// computing expectations as in HPI(t+DT) = HPI(t) + FACTOR*DT*dHPI/dt (double)
-		return(Model.housingMarketStats.getLongTermHPA()*config.HPA_EXPECTATION_FACTOR);
+		return(context.housingMarketStats.getLongTermHPA()*config.HPA_EXPECTATION_FACTOR);
     }
 
     public double getBTLCapGainCoefficient() { return BTLCapGainCoefficient; }
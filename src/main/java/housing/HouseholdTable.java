@@ -0,0 +1,134 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to hold the numeric state of all households that is read or written by every household
+ * every month, i.e., age, bank balance, employment income, income percentile and bankruptcy flag,
+ * in primitive columns indexed by household slot. Each Household is a view over its own slot,
+ * which is assigned at birth and released at death, to be reused by the next household born, so
+ * that the columns stay dense whatever the turnover of the population.
+ *
+ * Flags are kept as boolean arrays rather than as bitsets, since households in different slots are
+ * written concurrently during the local phase of the household step, and a bitset would make them
+ * share words.
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class HouseholdTable implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    // Columns, indexed by household slot
+    double[]            age; // Age of the household representative person
+    double[]            bankBalance;
+    double[]            annualGrossEmploymentIncome;
+    double[]            monthlyGrossEmploymentIncome;
+    double[]            employmentIncomeTaxes; // Annual income tax and national insurance contributions due on employment income
+    double[]            incomePercentile; // Fixed for the whole lifetime of the household, except during income shocks
+    boolean[]           isBankrupt;
+    // Cache of the income data row of each household, valid while its income percentile is the one the row was found
+    // for and its age does not go beyond the age limit of the row
+    int[]               incomeRow;
+    double[]            incomeRowPercentile;
+    double[]            incomeRowAgeLimit;
+
+    private int         size; // Number of slots ever assigned, i.e., upper bound of the slots in use
+    private int[]       freeSlots; // Stack of released slots, to be reused before assigning new ones
+    private int         nFreeSlots;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param initialCapacity Number of slots to allocate upfront, the columns growing as needed afterwards
+     */
+    HouseholdTable(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        age = new double[capacity];
+        bankBalance = new double[capacity];
+        annualGrossEmploymentIncome = new double[capacity];
+        monthlyGrossEmploymentIncome = new double[capacity];
+        employmentIncomeTaxes = new double[capacity];
+        incomePercentile = new double[capacity];
+        isBankrupt = new boolean[capacity];
+        incomeRow = new int[capacity];
+        incomeRowPercentile = new double[capacity];
+        incomeRowAgeLimit = new double[capacity];
+        freeSlots = new int[capacity];
+        clear();
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Assign a slot to a new household, reusing the most recently released one, if any, with all its fields set to zero
+     * and its income row cache invalidated
+     *
+     * @return Slot of the new household
+     */
+    int allocate() {
+        int slot;
+        if (nFreeSlots > 0) {
+            slot = freeSlots[--nFreeSlots];
+        } else {
+            if (size == age.length) grow();
+            slot = size++;
+        }
+        age[slot] = 0.0;
+        bankBalance[slot] = 0.0;
+        annualGrossEmploymentIncome[slot] = 0.0;
+        monthlyGrossEmploymentIncome[slot] = 0.0;
+        employmentIncomeTaxes[slot] = 0.0;
+        incomePercentile[slot] = 0.0;
+        isBankrupt[slot] = false;
+        incomeRow[slot] = -1;
+        incomeRowPercentile[slot] = Double.NaN;
+        incomeRowAgeLimit[slot] = Double.NEGATIVE_INFINITY;
+        return slot;
+    }
+
+    /**
+     * Release the slot of a household that has died, which must not be used through that household afterwards
+     */
+    void release(int slot) {
+        if (nFreeSlots == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, 2*freeSlots.length);
+        freeSlots[nFreeSlots++] = slot;
+    }
+
+    /**
+     * Release all slots, to be called whenever the list of households is emptied
+     */
+    void clear() {
+        size = 0;
+        nFreeSlots = 0;
+    }
+
+    /**
+     * @return Number of slots currently assigned to households
+     */
+    public int getnHouseholds() { return size - nFreeSlots; }
+
+    private void grow() {
+        int capacity = 2*age.length;
+        age = Arrays.copyOf(age, capacity);
+        bankBalance = Arrays.copyOf(bankBalance, capacity);
+        annualGrossEmploymentIncome = Arrays.copyOf(annualGrossEmploymentIncome, capacity);
+        monthlyGrossEmploymentIncome = Arrays.copyOf(monthlyGrossEmploymentIncome, capacity);
+        employmentIncomeTaxes = Arrays.copyOf(employmentIncomeTaxes, capacity);
+        incomePercentile = Arrays.copyOf(incomePercentile, capacity);
+        isBankrupt = Arrays.copyOf(isBankrupt, capacity);
+        incomeRow = Arrays.copyOf(incomeRow, capacity);
+        incomeRowPercentile = Arrays.copyOf(incomeRowPercentile, capacity);
+        incomeRowAgeLimit = Arrays.copyOf(incomeRowAgeLimit, capacity);
+    }
+}
@@ -1,12 +1,17 @@
 package housing;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 
-import org.apache.commons.math3.distribution.GeometricDistribution;
 import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.util.FastMath;
 
-import utilities.PriorityQueue2D;
+import utilities.DoubleUnaryOperator;
+import utilities.WorkerPool;
 
 /**************************************************************************************************
  * Class that implements the market mechanism behind both the sale and the rental markets
@@ -14,15 +19,36 @@ import utilities.PriorityQueue2D;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public abstract class HousingMarket {
+public abstract class HousingMarket implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private Config                                  config = Model.config; // Passes the Model's configuration parameters object to a private field
+    private static final long serialVersionUID = 1L;
+
+    private static final int                        MIN_BIDS_PER_WORKER = 1000; // Fewer bids are matched on a single thread
+    private static final HousingMarketRecord.PQComparator PQ_COMPARATOR = new HousingMarketRecord.PQComparator();
+    private static final Comparator<HouseOfferRecord>   PRICE_QUALITY_ORDER = new Comparator<HouseOfferRecord>() {
+        @Override
+        public int compare(HouseOfferRecord arg0, HouseOfferRecord arg1) { return PQ_COMPARATOR.XYCompare(arg0, arg1); }
+    };
+    private static final HouseBidderRecord.PComparator BID_PRICE_ORDER = new HouseBidderRecord.PComparator();
+    private static final Comparator<HouseOfferRecord>   HOUSE_ID_ORDER = new Comparator<HouseOfferRecord>() {
+        @Override
+        public int compare(HouseOfferRecord arg0, HouseOfferRecord arg1) {
+            return Integer.compare(arg0.getHouse().id, arg1.getHouse().id);
+        }
+    };
+
+    private Config                                  config; // Passes the context's configuration parameters object to a private field
+    SimulationContext                               context;
     private MersenneTwister                         prng;
-    private PriorityQueue2D<HousingMarketRecord>    offersPQ;
+    private OfferBook                               offersPQ; // Offers bucketed by quality and sorted by price
+    private ArrayList<HouseOfferRecord>             matchedOffers; // Offers matched with at least one bid in this round
+    private HouseOfferRecord[]                      bestOffers; // Best offer found for each bid in this round
+    private HouseBidderRecord[]                     bidsAbove; // Scratch buffer for the bids above the price of an offer
+    private HouseOfferRecord[]                      repricedOffers; // Scratch buffer for the offers repriced in a batch
 
     ArrayList<HouseBidderRecord>                     bids;
 
@@ -30,14 +56,20 @@ public abstract class HousingMarket {
     //----- Constructors -----//
     //------------------------//
 
-    HousingMarket(MersenneTwister prng) {
-        offersPQ = new PriorityQueue2D<>(new HousingMarketRecord.PQComparator()); //Priority Queue of (Price, Quality)
+    HousingMarket(SimulationContext context) {
+        this.context = context;
+        this.config = context.config;
+        offersPQ = new OfferBook(config.N_QUALITY); // Price-quality book of offers
+        matchedOffers = new ArrayList<>();
+        bestOffers = new HouseOfferRecord[0];
+        bidsAbove = new HouseBidderRecord[8];
+        repricedOffers = new HouseOfferRecord[0];
         // The integer passed to the ArrayList constructor is an initially declared capacity (for initial memory
         // allocation purposes), it will actually have size zero and only grow by adding elements
         // TODO: Check if this integer is too large or small, check speed penalty for using ArrayList as opposed to
         // TODO: normal arrays
         bids = new ArrayList<>(config.TARGET_POPULATION/16);
-        this.prng = prng;
+        this.prng = context.prng;
     }
 
     //-------------------//
@@ -54,11 +86,13 @@ public abstract class HousingMarket {
      * Put a new offer on the market
      *
      * @param house House to put on the market
+     * @param seller Owner putting the house on the market, which may not be its owner yet, as a buy-to-let house is
+     *               put up for rent by its buyer before it changes hands
      * @param price List price for the house
      * @return HouseOfferRecord for the house
      */
-    public HouseOfferRecord offer(House house, double price, boolean BTLOffer) {
-        HouseOfferRecord hsr = new HouseOfferRecord(house, price, BTLOffer);
+    public HouseOfferRecord offer(House house, IHouseOwner seller, double price, boolean BTLOffer) {
+        HouseOfferRecord hsr = new HouseOfferRecord(context, house, seller, price, BTLOffer);
         offersPQ.add(hsr);
         return hsr;
     }
@@ -70,11 +104,37 @@ public abstract class HousingMarket {
      * @param newPrice The new price of the house
      */
     public void updateOffer(HouseOfferRecord hsr, double newPrice) {
-        offersPQ.remove(hsr);
         hsr.setPrice(newPrice);
-        offersPQ.add(hsr);
+        offersPQ.update(hsr);
     }
     
+    /**
+     * Change the list-prices of a batch of houses that are already on the market, in order of house id, restoring the
+     * ordering of the offer queues once for the whole batch rather than once per offer
+     *
+     * @param offers The HouseOfferRecords of the houses to change the price for
+     * @param newPrice Function returning the new price of each house given its current price
+     */
+    public void repriceAll(Collection<HouseOfferRecord> offers, DoubleUnaryOperator newPrice) {
+        int n = offers.size();
+        if (n == 0) return;
+        if (repricedOffers.length < n) repricedOffers = new HouseOfferRecord[Math.max(n, 2*repricedOffers.length)];
+        int i = 0;
+        for (HouseOfferRecord offer : offers) repricedOffers[i++] = offer;
+        Arrays.sort(repricedOffers, 0, n, HOUSE_ID_ORDER);
+        repriceSorted(repricedOffers, n, newPrice);
+        Arrays.fill(repricedOffers, 0, n, null);
+    }
+
+    /**
+     * Apply the new prices to a batch of offers already sorted by house id, and restore the ordering of the offer book.
+     * Subclasses holding further queues of offers override this method to restore their ordering too
+     */
+    void repriceSorted(HouseOfferRecord[] offers, int n, DoubleUnaryOperator newPrice) {
+        for (int i = 0; i < n; i++) offers[i].setPrice(newPrice.applyAsDouble(offers[i].getPrice()));
+        offersPQ.updateAll(offers, n);
+    }
+
     /**
      * Take a house off the market
      * 
@@ -89,7 +149,7 @@ public abstract class HousingMarket {
      * @param price The price that the household is willing to pay
      */
     public void bid(Household buyer, double price) {
-        bids.add(new HouseBidderRecord(buyer, price, false));
+        bids.add(new HouseBidderRecord(context, buyer, price, false));
     }
 
     //----- Market clearing methods -----//
@@ -98,9 +158,6 @@ public abstract class HousingMarket {
      * Main simulation step. For a number of rounds, matches bids with offers and clears the matches.
      */
     void clearMarket() {
-        // Before any use, priorities must be sorted by filling in the uncoveredElements TreeSet at the corresponding
-        // PriorityQueue2D, in this case, the offersPQ object contains a Price-Quality 2D-priority queue of offers
-        offersPQ.sortPriorities();
         while (bids.size() > 0 && offersPQ.size() > 0) {
             matchBidsWithOffers(); // Step 1: iterate through bids
             clearMatches(); // Step 2: iterate through offers
@@ -112,11 +169,26 @@ public abstract class HousingMarket {
      * First step to clear the market. Iterate through all bids and, for each bid, find the best quality house being
      * offered for that price or lower (if it exists) and record the match. Note that offers could be matched with
      * multiple bids.
+     *
+     * Finding the best offer for each bid only reads the state of the market, so bids are split across the workers of
+     * the context, each one filling in the best offers for a contiguous range of bids. Matches are then recorded
+     * sequentially, in the order of bids, so that results do not depend on the number of workers.
      */
     private void matchBidsWithOffers() {
+        final int nBids = bids.size();
+        if (bestOffers.length < nBids) bestOffers = new HouseOfferRecord[Math.max(nBids, 2*bestOffers.length)];
+        context.workers.run(nBids, MIN_BIDS_PER_WORKER, new WorkerPool.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) bestOffers[i] = getBestOffer(bids.get(i));
+            }
+        });
         HouseOfferRecord offer;
-        for(HouseBidderRecord bid : bids) {
-            offer = getBestOffer(bid);
+        HouseBidderRecord bid;
+        for (int i = 0; i < nBids; i++) {
+            bid = bids.get(i);
+            offer = bestOffers[i];
+            bestOffers[i] = null;
             // If buyer and seller is the same household, then the bid falls through and the household will need to
             // reissue it next month. Also, if the bid price is not enough to buy anything in this market and at this
             // time, the bid also falls through
@@ -146,6 +218,7 @@ public abstract class HousingMarket {
                 }
                 */
                 // GC: previous code:
+                if (offer.getMatchedBids().isEmpty()) matchedOffers.add(offer);
             	offer.matchWith(bid);
             }
         }
@@ -155,23 +228,26 @@ public abstract class HousingMarket {
     }
 
     /**
-     * Second step to clear the market. Iterate through all offers and, for each offer, loop through its matched bids.
-     * If BIDUP is activated, the offer price is bid up according to a geometric distribution with mean dependent on the
-     * number of matched bids.
+     * Second step to clear the market. Iterate through all offers with matched bids, in price-quality order (cheapest
+     * first and, for equal prices, best quality first) and, for each offer, loop through its matched bids. If BIDUP is
+     * activated, the offer price is bid up according to a geometric distribution with mean dependent on the number of
+     * matched bids.
      */
     private void clearMatches() {
         // Clear and resolve oversubscribed offers
         HouseOfferRecord offer;
-        GeometricDistribution geomDist;
+        ArrayList<HouseBidderRecord> matchedBids;
+        HouseBidderRecord winningBid;
         int nBids;
+        int nBidsAbove; // Number of bids at or above the new price
         double pSuccessfulBid;
         double salePrice;
-        int winningBid;
         int enoughBids; // Upper bounded number of bids on one house
-        Iterator<HousingMarketRecord> record = getOffersIterator();
-        while(record.hasNext()) {
-            offer = (HouseOfferRecord)record.next();
-            nBids = offer.getMatchedBids().size();
+        Collections.sort(matchedOffers, PRICE_QUALITY_ORDER);
+        for (int i = 0; i < matchedOffers.size(); i++) {
+            offer = matchedOffers.get(i);
+            matchedBids = offer.getMatchedBids();
+            nBids = matchedBids.size();
             // If matches for this offer are multiple...
             if(nBids > 1) {
                 // ...first bid up the price
@@ -181,55 +257,110 @@ public abstract class HousingMarket {
                     enoughBids = Math.min(4, (int)(0.5 + nBids*10000.0/config.TARGET_POPULATION));
                     // TODO: Also, the role of MONTHS_UNDER_OFFER is not explained or declared!
                     pSuccessfulBid = Math.exp(-enoughBids*config.derivedParams.MONTHS_UNDER_OFFER);
-                    geomDist = new GeometricDistribution(prng, pSuccessfulBid);
-                    salePrice = offer.getPrice()*Math.pow(config.BIDUP, geomDist.sample());
+                    salePrice = offer.getPrice()*Math.pow(config.BIDUP, nextGeometric(pSuccessfulBid));
                 } else {
                     salePrice = offer.getPrice();                    
                 }
-                // ...then choose a bid above the new price
-                offer.getMatchedBids().sort(new HouseBidderRecord.PComparator()); // This orders the list with the highest price last
-                while(nBids > 0 && offer.getMatchedBids().get(nBids - 1).getPrice() >= salePrice) {
-                    --nBids; // This counts the number of bids above the new price
+                // ...then choose a bid above the new price, collecting those bids into a scratch buffer
+                if (bidsAbove.length < nBids) bidsAbove = new HouseBidderRecord[Math.max(nBids, 2*bidsAbove.length)];
+                nBidsAbove = 0;
+                for (int j = 0; j < nBids; j++) {
+                    if (matchedBids.get(j).getPrice() >= salePrice) bidsAbove[nBidsAbove++] = matchedBids.get(j);
                 }
-                if (offer.getMatchedBids().size() - nBids > 1) {
-                    winningBid = nBids + prng.nextInt(offer.getMatchedBids().size()- nBids); // This chooses a random one if they are multiple
-                } else if (offer.getMatchedBids().size() - nBids == 1) {
-                    winningBid = nBids; // This chooses the only one if there is only one
+                if (nBidsAbove > 1) {
+                    // This chooses a random one if they are multiple, by its rank in increasing price (and id) order
+                    winningBid = selectBid(bidsAbove, nBidsAbove, prng.nextInt(nBidsAbove));
+                } else if (nBidsAbove == 1) {
+                    winningBid = bidsAbove[0]; // This chooses the only one if there is only one
                 } else {
-                    winningBid = nBids - 1;
-                    salePrice = offer.getMatchedBids().get(winningBid).getPrice(); // This chooses the highest bid if all of them are below the new price
+                    winningBid = matchedBids.get(0);
+                    for (int j = 1; j < nBids; j++) {
+                        if (BID_PRICE_ORDER.compare(matchedBids.get(j), winningBid) > 0) winningBid = matchedBids.get(j);
+                    }
+                    salePrice = winningBid.getPrice(); // This chooses the highest bid if all of them are below the new price
                 }
-                // Remove this offer from the offers priority queue, offersPQ, underlying the record iterator (and, for HouseSaleMarket, also from the PY queue)
+                Arrays.fill(bidsAbove, 0, nBidsAbove, null);
+                // Remove this offer from the offers book, offersPQ (and, for HouseSaleMarket, also from the PY queue)
                 // Note that this needs to be done before modifying offer, so that it can be also found in the PY queue for the HouseSaleMarket case
-                removeOfferFromQueues(record, offer);
+                removeOfferFromQueues(offer);
                 // ...update price for the offer
                 offer.setPrice(salePrice);
                 // ...complete successful transaction and record it into the corresponding housingMarketStats
-                completeTransaction(offer.getMatchedBids().get(winningBid), offer);
+                completeTransaction(winningBid, offer);
                 // Put the rest of the bids for this property (failed bids) back on bids array
-                bids.addAll(offer.getMatchedBids().subList(0, winningBid));
-                bids.addAll(offer.getMatchedBids().subList(winningBid + 1, offer.getMatchedBids().size()));
+                for (int j = 0; j < nBids; j++) {
+                    if (matchedBids.get(j) != winningBid) bids.add(matchedBids.get(j));
+                }
             // If there is only one match...
             } else if (nBids == 1) {
                 // ...complete successful transaction and record it into the corresponding housingMarketStats
-                completeTransaction(offer.getMatchedBids().get(0), offer);
-                // ...remove this offer from the offers priority queue, offersPQ, underlying the record iterator (and, for HouseSaleMarket, also from the PY queue)
-                removeOfferFromQueues(record, offer);
+                completeTransaction(matchedBids.get(0), offer);
+                // ...remove this offer from the offers book, offersPQ (and, for HouseSaleMarket, also from the PY queue)
+                removeOfferFromQueues(offer);
             }
-            // Note that we skip the whole process if there are no matches
         }
+        matchedOffers.clear();
+    }
+
+    /**
+     * Sample a geometric variate, i.e., the number of failures before the first success in Bernoulli trials with
+     * success probability p, by inversion of a single uniform variate. This gives the same variates, for the same
+     * sequence of random numbers, as GeometricDistribution.sample() from commons-math3, whose bisection search finds
+     * the smallest k such that 1 - (1 - p)^(k + 1) >= u, but without creating a new distribution for each draw.
+     */
+    private int nextGeometric(double p) {
+        double u = prng.nextDouble();
+        if (u == 0.0) return 0;
+        double k = Math.ceil(FastMath.log1p(-u)/FastMath.log1p(-p) - 1.0);
+        int n = (k > 0.0) ? (int)Math.min(k, Integer.MAX_VALUE - 1) : 0;
+        // Correct for any rounding error in the closed form, using the same cumulative probability as commons-math3
+        while (n > 0 && 1.0 - FastMath.pow(1.0 - p, n) >= u) n--;
+        while (n < Integer.MAX_VALUE - 1 && 1.0 - FastMath.pow(1.0 - p, n + 1) < u) n++;
+        return n;
+    }
+
+    /**
+     * Find the bid of a given rank, in increasing price order (solving ties by id), among the first n bids of an array,
+     * by partial selection (quickselect), reordering the array in the process
+     *
+     * @param bids Array of bids
+     * @param n Number of bids to select from
+     * @param rank Rank of the bid to find, starting at 0 for the cheapest bid
+     */
+    private static HouseBidderRecord selectBid(HouseBidderRecord[] bids, int n, int rank) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            HouseBidderRecord pivot = bids[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (BID_PRICE_ORDER.compare(bids[i], pivot) < 0) i++;
+                while (BID_PRICE_ORDER.compare(bids[j], pivot) > 0) j--;
+                if (i <= j) {
+                    HouseBidderRecord tmp = bids[i];
+                    bids[i++] = bids[j];
+                    bids[j--] = tmp;
+                }
+            }
+            if (rank <= j) {
+                right = j;
+            } else if (rank >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return bids[rank];
     }
 
     /**
      * Extracts the removal of successfully matched and cleared offers from the priority queues from the clearMatches
      * method, so that only this part can be overridden at HouseSaleMarket
      *
-     * @param record Iterator over the HousingMarketRecord objects contained in offersPQ
      * @param offer Offer to remove from queues
      */
-    void removeOfferFromQueues(Iterator<HousingMarketRecord> record, HouseOfferRecord offer) {
-        record.remove();
-    }
+    void removeOfferFromQueues(HouseOfferRecord offer) { offersPQ.remove(offer); }
 
     /**
      * This abstract method allows for the different implementations at HouseSaleMarket and HouseRentalMarket to be
@@ -244,16 +375,14 @@ public abstract class HousingMarket {
 
     public ArrayList<HouseBidderRecord> getBids() { return bids; }
 
-    public PriorityQueue2D<HousingMarketRecord> getOffersPQ() { return offersPQ; }
-
-    Iterator<HousingMarketRecord> getOffersIterator() { return(offersPQ.iterator()); }
+    public OfferBook getOffersPQ() { return offersPQ; }
 
     /**
      * Get the highest quality house being offered for a price up to that of the bid (OfferPrice <= bidPrice)
      *
      * @param bid The highest possible price the buyer is ready to pay
      */
-    protected HouseOfferRecord getBestOffer(HouseBidderRecord bid) { return (HouseOfferRecord)offersPQ.peek(bid); }
+    protected HouseOfferRecord getBestOffer(HouseBidderRecord bid) { return offersPQ.peek(bid.getPrice()); }
 
     int getnHousesOnMarket() { return offersPQ.size(); }
 }
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 import utilities.PriorityQueue2D;
 
 /**************************************************************************************************
@@ -11,23 +13,24 @@ import utilities.PriorityQueue2D;
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public abstract class HousingMarketRecord {
+public abstract class HousingMarketRecord implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private double price;
     private int id;  // In order to get a unique, repeatable ordering
-    private static int id_pool = 0;
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    HousingMarketRecord(double price) {
+    HousingMarketRecord(SimulationContext context, double price) {
         this.price = price;
-        id = id_pool++;
+        id = context.nextMarketRecordId();
     }
 
     //----------------------//
@@ -38,7 +41,8 @@ public abstract class HousingMarketRecord {
      * Class that implements the comparators needed for inserting HousingMarketRecord objects into PriorityQueue2D. In
      * particular, this class implements the comparators for a price-quality priority queue.
      */
-    public static class PQComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord> {
+    public static class PQComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord>, Serializable {
+        private static final long serialVersionUID = 1L;
 
         /**
          * @return -1 or 1 if arg0 is, respectively, cheaper than or more expensive than arg1 solving the arg0 == arg1
@@ -78,7 +82,8 @@ public abstract class HousingMarketRecord {
      * Class that implements the comparators needed for inserting HousingMarketRecord objects into PriorityQueue2D. In
      * particular, this class implements the comparators for a price-yield priority queue.
      */
-    public static class PYComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord> {
+    public static class PYComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord>, Serializable {
+        private static final long serialVersionUID = 1L;
 
         /**
          * @return -1 or 1 if arg0 is, respectively, cheaper than or more expensive than arg1 solving the arg0 == arg1
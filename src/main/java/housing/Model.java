@@ -1,14 +1,19 @@
 package housing;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Scanner;
 import java.time.Instant;
 
 import collectors.*;
-import data.EmploymentIncome;
+import collectors.IndicatorCatalogue.Indicator;
+import utilities.BinaryResults;
 
 import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.cli.*;
@@ -36,132 +41,35 @@ import org.apache.commons.io.FileUtils;
  *
  *************************************************************************************************/
 
-public class Model {
+public class Model implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    public static Config                config;
-    public static Construction		    construction;
-    public static CentralBank		    centralBank;
-    public static Bank 				    bank;
-    public static HouseSaleMarket       houseSaleMarket;
-    public static HouseRentalMarket     houseRentalMarket;
-    public static ArrayList<Household>  households;
-    public static CreditSupply          creditSupply;
-    public static CoreIndicators        coreIndicators;
-    public static HouseholdStats        householdStats;
-    public static HousingMarketStats    housingMarketStats;
-    public static RentalMarketStats     rentalMarketStats;
-    public static MicroDataRecorder     transactionRecorder;
-    public static int	                nSimulation; // To keep track of the simulation number
-    public static int	                t; // To keep track of time (in months)
-
-    static Government		            government;
-
-    private static MersenneTwister      prng;
-    private static Demographics		    demographics;
-    private static Recorder             recorder;
-    private static String               configFileName;
-    private static String               outputFolder;
-
-    // +++
-    private static double[]				AvRentPrice;
-    private static double[]             debtToIncome;
-    private static double[]             ooLTI;
-    private static double[]             btlLTV;
-    private static double[]             ooDebtToIncome;
-    private static double[]             mortgageApprovals;
-    private static double[]             dtiBorrowers;
-    private static double[]             priceToIncome;
-    private static double[]             rentalYield;
-    private static double[]             interestRateSpread;
-    private static double[]             nHomeless;
-    private static double[]             nRenting;
-    private static double[]             nOwnerOccupier;
-    private static double[]             nBTL;
-    private static double[]             nNonBTLBankruptcies;
-    private static double[]             nBTLBankruptcies;
-    private static double[]             housingStock;
-    private static double[]             nNewBuild;
-    private static double[]             nEmptyHouses;
-    private static double[]             BTLStockFraction;
-    private static double[]             nRegisteredMortgages;
-    private static double[]             bankBalAll;
-    private static double[]             BankBalBTL;
-    private static double[]             BankBalOO;
-    private static double[]             BankBalRent;
-    private static double[]             BankBalHomeless;
-    private static double[]             ActiveBTLAnnualisedTotalIncome;
-    private static double[]             OwnerOccupierAnnualisedTotalIncome;
-    private static double[]             RentingAnnualisedTotalIncome;
-    private static double[]             HomelessAnnualisedTotalIncome;
-    private static double[]             AllAnnualisedTotalIncome;
-    //private static double[]             ooLTV;
-    private static double[]             ltvBorrowers;
-    private static double[]             AvBidPrice;
-    private static double[]             AvOfferPrice;
-    private static double[]             AvSalePrice;
-    private static double[]             AvDaysOnMarket;
-    private static double[]             nBuyers;
-    private static double[]             nBTLBuyers;
-    private static double[]             nSellers;
-    private static double[]             nSales;
-    private static double[]             supplyVal;
-    private static double[]				nFTBMortgages;
-    private static double[]				nBTLMortgages;
-	private static double[]				totalBTLCredit;
-	private static double[]				totalOOCredit;
-	private static double[]				avgDownpayment;
-	private static double[]             ooDSR;
-	private static double[]				btlDSR;
-	private static double[]             q1SalePrice;
-	private static double[]             q2SalePrice;
-	private static double[]             q3SalePrice;
-	private static double[]             q4SalePrice;
-	private static double[]             q1RentPrice;
-	private static double[]             q2RentPrice;
-	private static double[]             q3RentPrice;
-	private static double[]             q4RentPrice;
-	private static double[]             q1SaleN;
-	private static double[]             q2SaleN;
-	private static double[]             q3SaleN;
-	private static double[]             q4SaleN;
-	private static double[]             q1RentN;
-	private static double[]             q2RentN;
-	private static double[]             q3RentN;
-	private static double[]             q4RentN;
-	private static double[]             q1Princ;
-	private static double[]             q2Princ;
-	private static double[]             q3Princ;
-	private static double[]             q4Princ;
-	private static double[]             q1Install;
-	private static double[]             q2Install;
-	private static double[]             q3Install;
-	private static double[]             q4Install;
-	private static double[]             q1NumSaleOffers;
-	private static double[]             q2NumSaleOffers;
-	private static double[]             q3NumSaleOffers;
-	private static double[]             q4NumSaleOffers;
-	private static double[]             q1MinSaleOffers;
-	private static double[]             q2MinSaleOffers;
-	private static double[]             q3MinSaleOffers;
-	private static double[]             q4MinSaleOffers;
-	private static double[]             q1MaxSaleOffers;
-	private static double[]             q2MaxSaleOffers;
-	private static double[]             q3MaxSaleOffers;
-	private static double[]             q4MaxSaleOffers;
-	private static double[]             q1AvgSaleOffers;
-	private static double[]             q2AvgSaleOffers;
-	private static double[]             q3AvgSaleOffers;
-	private static double[]             q4AvgSaleOffers;
-	
-    
-    private static int					rndSeed;
-    private static boolean              writeCSV; 
+    private static final long serialVersionUID = 1L;
+
+    // Names of all the indicators in the catalogue, in the order of the first index of the results array when all of
+    // them are recorded, as they are by default
+    public static final String[]        INDICATOR_NAMES = IndicatorCatalogue.getNames();
+
+    private Config                      config;
+    private MersenneTwister             prng;
+    private SimulationContext           context; // State of the simulation run, created by ModelInit
+    private transient Recorder          recorder; // Output files, not included in snapshots
+    private String                      configFileName;
+    private String                      outputFolder;
+
+    private String[]                    indicatorNames = INDICATOR_NAMES; // Names of the indicators to be recorded
+    private transient Indicator[]       indicators = getIndicators(INDICATOR_NAMES); // Indicators to be recorded, not in snapshots
+
+    private int                         rndSeed;
+    private boolean                     writeCSV;
+    private boolean                     started = false; // Whether the current simulation has already been started
+    private int                         nextTimeStep = 0; // Next time step to be run in the current simulation
+    private PolicyScenario              scenario; // Policy interventions applied during the simulation
           
-    private static double[][]           results;
+    private double[][]                  results;
     
     //------------------------//
     //----- Constructors -----//
@@ -182,131 +90,56 @@ public class Model {
     	config = new Config(configFileName);
         prng = new MersenneTwister(rndSeed);
     }
-    
-    public static void ModelInit(double income_shock_prob)
-    {	    	    	
-        government = new Government();
-        demographics = new Demographics(prng, income_shock_prob);
-        construction = new Construction(prng);
-        centralBank = new CentralBank();
-        bank = new Bank();
-        households = new ArrayList<>(config.TARGET_POPULATION*2);
-        houseSaleMarket = new HouseSaleMarket(prng);
-        houseRentalMarket = new HouseRentalMarket(prng);
-        
-        EmploymentIncome.prng = prng;
+
+    /**
+     * @param args String with the command line arguments, from which the configuration file and the output folder are
+     *             read
+     * @param _rndSeed Seed for the random number generator of this run
+     */
+    public Model(String[] args, int _rndSeed) {
+
+        writeCSV = false;
+
+        handleInputArguments(args);
+        rndSeed = _rndSeed;
+
+        config = new Config(configFileName);
+        prng = new MersenneTwister(rndSeed);
+    }
+
+    /**
+     * Creates the simulation context, with all the agents and collectors, and the arrays where results are stored. To
+     * be called once any config parameters have been modified and the derived parameters have been set.
+     *
+     * @param income_shock_prob Monthly probability of a household receiving an income shock
+     */
+    public void ModelInit(double income_shock_prob)
+    {
+        context = new SimulationContext(config, prng, income_shock_prob, outputFolder);
+        if (scenario == null) scenario = PolicyScenario.covid(config.N_STEPS);
 
         if(writeCSV == true)
         {
-        	recorder = new collectors.Recorder(outputFolder);
+        	recorder = new collectors.Recorder(context, outputFolder);
+        	// Open files for writing multiple runs results
+        	recorder.openMultiRunFiles(config.recordCoreIndicators);
         }
-        transactionRecorder = new collectors.MicroDataRecorder(outputFolder);
-        creditSupply = new collectors.CreditSupply(outputFolder);
-        coreIndicators = new collectors.CoreIndicators();
-        householdStats = new collectors.HouseholdStats();
-        housingMarketStats = new collectors.HousingMarketStats(houseSaleMarket);
-        rentalMarketStats = new collectors.RentalMarketStats(housingMarketStats, houseRentalMarket);
-
-        nSimulation = 0;
-
-        // +++
-        AvRentPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];	
-        debtToIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        ooLTI = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        btlLTV = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        ooDebtToIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        mortgageApprovals = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        dtiBorrowers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        priceToIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        rentalYield = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        interestRateSpread = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nHomeless = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nRenting = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nOwnerOccupier = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nBTL = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nNonBTLBankruptcies = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nBTLBankruptcies = new double[config.N_STEPS - config.TIME_TO_START_RECORDING]; 
-        housingStock = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nNewBuild = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nEmptyHouses = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        BTLStockFraction = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nRegisteredMortgages = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        bankBalAll = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        BankBalBTL = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        BankBalOO = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        BankBalRent = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        BankBalHomeless = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        ActiveBTLAnnualisedTotalIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        OwnerOccupierAnnualisedTotalIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        RentingAnnualisedTotalIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        HomelessAnnualisedTotalIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        AllAnnualisedTotalIncome = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        //ooLTV = new double[config.N_STEPS - config.TIME_TO_START_RECORDING]; 
-        ltvBorrowers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        AvBidPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        AvOfferPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        AvSalePrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        AvDaysOnMarket = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nBuyers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nBTLBuyers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nSellers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nSales = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        supplyVal = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nFTBMortgages = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-        nBTLMortgages = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	totalBTLCredit = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	totalOOCredit = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	avgDownpayment = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	ooDSR = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	btlDSR = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1SalePrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2SalePrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3SalePrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4SalePrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1RentPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2RentPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3RentPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4RentPrice = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1SaleN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2SaleN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3SaleN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4SaleN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1RentN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2RentN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3RentN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4RentN = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1Princ = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2Princ = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3Princ = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4Princ = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1Install = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2Install = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3Install = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4Install = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1NumSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2NumSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3NumSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4NumSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1MinSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2MinSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3MinSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4MinSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1MaxSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2MaxSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3MaxSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4MaxSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q1AvgSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q2AvgSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q3AvgSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];
-    	q4AvgSaleOffers = new double[config.N_STEPS - config.TIME_TO_START_RECORDING];  	
-    	
-        results = new double[88][config.N_STEPS - config.TIME_TO_START_RECORDING];
+
+        initIndicators();
     }
 
     //-------------------//
     //----- Methods -----//
     //-------------------//
 
+    /**
+     * Runs config.N_SIMS simulations with the given parameters, any parameter equal to -1.0 (or hpa_years_to_check
+     * equal to 0) keeping its value from the config file. Simulations run concurrently, the first one with seed
+     * rndSeed and the following ones with seeds rndSeed + 1, rndSeed + 2, etc.
+     *
+     * @return Serialised array of recorded time series, indexed by [indicator][time step] for a single simulation, or
+     * by [simulation][indicator][time step] if config.N_SIMS is larger than one
+     */
     //public static double[][] exec(int rndSeed, 
 	public static byte[] exec(int rndSeed, 
     		double market_average_price_decay,
@@ -340,19 +173,249 @@ public class Model {
     	
         // Handle input arguments from command line
         // handleInputArguments(args);
-        String[] args2 = {"args"};
-        handleInputArguments(args2);
-        
-        
+        final String[] args2 = {"args"};
+
+        // Number of simulations to run, as given in the config file
+        int nSims = new Model(args2, rndSeed).config.N_SIMS;
+
+        // Parameters common to every simulation, in the order of the arguments of this method
+        final double[] params = {market_average_price_decay, p_fundamentalist, hpa_expectation_factor,
+                fundamentalist_cap_gain_coefficient, trend_cap_gain_coefficient, hpa_years_to_check,
+                desired_rent_income_fraction, psychological_cost_of_renting, sensitivity_rent_or_purchase,
+                bank_balance_for_cash_downpayment, buy_scale, desired_bank_balance_beta, decision_to_sell_alpha,
+                btl_choice_intensity, buy_epsilon, rent_epsilon, construction_houses_per_household, bidup, nQuality,
+                buy_weight_hpa, credit_supply_target, consumption_fraction, income_shock_prob};
+
+        // Each simulation runs on its own instance of Model, created and initialised (reading config file) by the worker
+        // thread running it, with its seed derived from rndSeed
+        MonteCarloRunner.ReplicateFactory factory = new MonteCarloRunner.ReplicateFactory() {
+            @Override
+            public Model newReplicate(int replicate, int seed) { return newModel(args2, seed, params); }
+        };
+
+        // Perform config.N_SIMS simulations concurrently, using every available processor
+        double[][][] ensemble = new MonteCarloRunner().run(nSims, rndSeed, factory);
+
+        // A single simulation keeps returning its [indicator][time step] array, while an ensemble of several ones
+        // returns the stacked [simulation][indicator][time step] array
+        Object results = (nSims == 1) ? ensemble[0] : ensemble;
+
+    	byte[] results2 = serialise(results);
+
+    	long endTime = System.currentTimeMillis();
+		long time = (endTime - startTime)/(long)1000.0;
+        System.out.println("Total execution time: " + time + "secs."); 
+
+    	return results2;
+    	
+        // After the last simulation, clean up
+        // ---
+        //recorder.finish(config.recordCoreIndicators);
+        //if(config.recordMicroData) transactionRecorder.finish();
+
+        // Stop the program when finished
+        // ---
+        // System.exit(0);
+    }
+
+    /**
+     * Runs one simulation per row of params concurrently, all of them inside this JVM, so that calibration loops can
+     * evaluate a whole batch of candidate parameter sets with a single call through the py4j gateway
+     *
+     * @param params Array of parameter sets, each one with the same 23 values, in the same order, as the arguments of
+     *               exec() following rndSeed
+     * @param seeds Seed for the simulation of each parameter set
+     * @return Recorded time series, indexed by [parameter set][indicator][time step], encoded in the binary layout
+     * described in utilities.BinaryResults, with INDICATOR_NAMES as indicator names
+     */
+    public static byte[] execBatch(double[][] params, int[] seeds) {
+        return execBatch(params, seeds, INDICATOR_NAMES);
+    }
+
+    /**
+     * Same as execBatch, but recording only the given indicators, so that only the collectors they are computed from
+     * run during the simulations
+     *
+     * @param indicatorNames Names of the indicators to record, as registered in collectors.IndicatorCatalogue
+     * @return Recorded time series, indexed by [parameter set][indicator][time step], encoded in the binary layout
+     * described in utilities.BinaryResults, with indicatorNames as indicator names
+     */
+    public static byte[] execBatch(double[][] params, int[] seeds, String[] indicatorNames) {
+        return BinaryResults.toByteArray(indicatorNames, runBatch(params, seeds, indicatorNames));
+    }
+
+    /**
+     * Same as execBatch, but writing the encoded results into a memory-mapped file, which python can then read with
+     * numpy.memmap without the results ever going through the py4j socket
+     *
+     * @param fileName Name of the file to be created or overwritten with the results
+     */
+    public static void execBatchToFile(double[][] params, int[] seeds, String fileName) throws IOException {
+        execBatchToFile(params, seeds, INDICATOR_NAMES, fileName);
+    }
+
+    /**
+     * Same as execBatchToFile, but recording only the given indicators
+     *
+     * @param indicatorNames Names of the indicators to record, as registered in collectors.IndicatorCatalogue
+     */
+    public static void execBatchToFile(double[][] params, int[] seeds, String[] indicatorNames, String fileName)
+            throws IOException {
+        BinaryResults.writeToFile(fileName, indicatorNames, runBatch(params, seeds, indicatorNames));
+    }
+
+    /**
+     * Runs the first nWarmUpSteps time steps of a simulation, typically a burn-in period common to several scenarios,
+     * and returns a snapshot of the resulting state, from which execForks() can then branch any number of simulations
+     *
+     * @param params Array with the same 23 values, in the same order, as the arguments of exec() following rndSeed
+     * @param rndSeed Seed for the random number generator
+     * @param nWarmUpSteps Number of time steps to run before taking the snapshot
+     * @return Snapshot of the model after nWarmUpSteps time steps
+     */
+    public static byte[] execWarmUp(double[] params, int rndSeed, int nWarmUpSteps) {
+        return execWarmUp(params, rndSeed, nWarmUpSteps, INDICATOR_NAMES);
+    }
+
+    /**
+     * Same as execWarmUp, but recording only the given indicators, both during the warm-up and in every simulation
+     * branched from the snapshot
+     *
+     * @param indicatorNames Names of the indicators to record, as registered in collectors.IndicatorCatalogue
+     */
+    public static byte[] execWarmUp(double[] params, int rndSeed, int nWarmUpSteps, String[] indicatorNames) {
+        Model model = newModel(new String[] {"args"}, rndSeed, params);
+        model.setIndicators(indicatorNames);
+        model.startSimulation(1);
+        model.runUntil(nWarmUpSteps);
+        model.context.workers.shutdown();
+        return model.snapshot();
+    }
+
+    /**
+     * Restores one Model per seed from a snapshot and runs each of them concurrently, from the time step at which the
+     * snapshot was taken up to config.N_STEPS, with its random number generator re-seeded with that seed
+     *
+     * @param snapshot Snapshot taken with execWarmUp() or snapshot()
+     * @param seeds Seed for each of the simulations branched from the snapshot
+     * @return Recorded time series, including those recorded before the snapshot was taken, indexed by
+     * [simulation][indicator][time step], encoded in the binary layout described in utilities.BinaryResults, with the
+     * names of the indicators recorded by the snapshot as indicator names
+     */
+    public static byte[] execForks(final byte[] snapshot, int[] seeds) {
+        String[] indicatorNames = restore(snapshot).getIndicatorNames();
+        MonteCarloRunner.ReplicateFactory factory = new MonteCarloRunner.ReplicateFactory() {
+            @Override
+            public Model newReplicate(int replicate, int seed) { return restore(snapshot, seed); }
+        };
+        return BinaryResults.toByteArray(indicatorNames, new MonteCarloRunner().run(seeds, factory));
+    }
+
+    /**
+     * Restores one Model per scenario from a snapshot and runs each of them concurrently, from the time step at which
+     * the snapshot was taken up to config.N_STEPS, under its own policy scenario and with its random number generator
+     * re-seeded with the corresponding seed. Using the same seed for every scenario compares them under common random
+     * numbers.
+     *
+     * @param snapshot Snapshot taken with execWarmUp() or snapshot()
+     * @param scenarios Policy scenario for each of the simulations branched from the snapshot, replacing the one the
+     *                  snapshot was taken with
+     * @param seeds Seed for each of the simulations branched from the snapshot
+     * @return Recorded time series, including those recorded before the snapshot was taken, indexed by
+     * [scenario][indicator][time step], encoded in the binary layout described in utilities.BinaryResults, with the
+     * names of the indicators recorded by the snapshot as indicator names
+     */
+    public static byte[] execScenarios(final byte[] snapshot, final PolicyScenario[] scenarios, int[] seeds) {
+        if (scenarios.length != seeds.length) {
+            throw new IllegalArgumentException("Got " + scenarios.length + " scenarios but " + seeds.length + " seeds");
+        }
+        String[] indicatorNames = restore(snapshot).getIndicatorNames();
+        MonteCarloRunner.ReplicateFactory factory = new MonteCarloRunner.ReplicateFactory() {
+            @Override
+            public Model newReplicate(int replicate, int seed) {
+                Model model = restore(snapshot, seed);
+                model.setScenario(scenarios[replicate]);
+                return model;
+            }
+        };
+        return BinaryResults.toByteArray(indicatorNames, new MonteCarloRunner().run(seeds, factory));
+    }
 
-        // Create an instance of Model in order to initialise it (reading config file)
-        Model model = new Model(configFileName, outputFolder, rndSeed);
+    /**
+     * Runs one simulation per row of params concurrently, recording the given indicators
+     *
+     * @return Recorded time series, indexed by [parameter set][indicator][time step]
+     */
+    private static double[][][] runBatch(final double[][] params, int[] seeds, final String[] indicatorNames) {
+        if (params.length != seeds.length) {
+            throw new IllegalArgumentException("Got " + params.length + " parameter sets but " + seeds.length
+                    + " seeds");
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        final String[] args2 = {"args"};
+        MonteCarloRunner.ReplicateFactory factory = new MonteCarloRunner.ReplicateFactory() {
+            @Override
+            public Model newReplicate(int replicate, int seed) {
+                Model model = newModel(args2, seed, params[replicate]);
+                model.setIndicators(indicatorNames);
+                return model;
+            }
+        };
+        double[][][] results = new MonteCarloRunner().run(seeds, factory);
+
+        long endTime = System.currentTimeMillis();
+        System.out.println("Total execution time for a batch of " + params.length + " simulations: "
+                + (endTime - startTime)/1000 + "secs.");
+
+        return results;
+    }
+
+    /**
+     * Creates and initialises a Model, modifying any config parameters received
+     *
+     * @param args String with the command line arguments
+     * @param rndSeed Seed for the random number generator
+     * @param params Array with the same 23 values, in the same order, as the arguments of exec() following rndSeed,
+     *               any value equal to -1.0 (or hpa_years_to_check equal to 0) keeping its value from the config file
+     */
+    private static Model newModel(String[] args, int rndSeed, double[] params) {
+        if (params.length != 23) {
+            throw new IllegalArgumentException("Expected 23 parameters, got " + params.length);
+        }
+        double market_average_price_decay = params[0];
+        double p_fundamentalist = params[1];
+        double hpa_expectation_factor = params[2];
+        double fundamentalist_cap_gain_coefficient = params[3];
+        double trend_cap_gain_coefficient = params[4];
+        double hpa_years_to_check = params[5];
+        double desired_rent_income_fraction = params[6];
+        double psychological_cost_of_renting = params[7];
+        double sensitivity_rent_or_purchase = params[8];
+        double bank_balance_for_cash_downpayment = params[9];
+        double buy_scale = params[10];
+        double desired_bank_balance_beta = params[11];
+        double decision_to_sell_alpha = params[12];
+        double btl_choice_intensity = params[13];
+        double buy_epsilon = params[14];
+        double rent_epsilon = params[15];
+        double construction_houses_per_household = params[16];
+        double bidup = params[17];
+        double nQuality = params[18];
+        double buy_weight_hpa = params[19];
+        double credit_supply_target = params[20];
+        double consumption_fraction = params[21];
+        double income_shock_prob = params[22];
+
+        Model model = new Model(args, rndSeed);
+        Config config = model.config;
 
         /*
          * modify config parameters, if we received any - START
          * this has to be done for each parameter of the exec() function
          */
-        
+
         if (market_average_price_decay != -1.0) config.MARKET_AVERAGE_PRICE_DECAY = market_average_price_decay;
         if (p_fundamentalist != -1.0) config.P_FUNDAMENTALIST = p_fundamentalist;
         if (hpa_expectation_factor != -1.0) config.HPA_EXPECTATION_FACTOR = hpa_expectation_factor;
@@ -375,303 +438,27 @@ public class Model {
         if (buy_weight_hpa != -1.0) config.BUY_WEIGHT_HPA = buy_weight_hpa;
         if (credit_supply_target != -1.0) config.BANK_CREDIT_SUPPLY_TARGET = credit_supply_target;
         if (consumption_fraction != -1.0) config.CONSUMPTION_FRACTION = consumption_fraction;
-        
-        //System.out.println(config.N_QUALITY);
-        
+
         config.setDerivedParams();
 
         // modify config parameters, if we received any - END
 
         // Call the was-constructor
-        if (income_shock_prob != -1.0) 
-        {
-        	ModelInit(income_shock_prob);
-        } 
-        else 
+        if (income_shock_prob != -1.0)
         {
-        	ModelInit(0.05);
+            model.ModelInit(income_shock_prob);
         }
-        	
-        
-        
-        // Start data recorders for output
-        setupStatics();
-
-        // Open files for writing multiple runs results
-        if(writeCSV == true)
+        else
         {
-        	recorder.openMultiRunFiles(config.recordCoreIndicators);
+            model.ModelInit(0.05);
         }
-        
-        // Perform config.N_SIMS simulations
-        for (nSimulation = 1; nSimulation <= config.N_SIMS; nSimulation += 1) {
-
-        	if(writeCSV == true)
-        	{
-        		// For each simulation, open files for writing single-run results
-        		recorder.openSingleRunFiles(nSimulation);
-        	}
-            
-            // For each simulation, initialise both houseSaleMarket and houseRentalMarket variables (including HPI)
-            init();
-
-            // For each simulation, run config.N_STEPS time steps
-            for (t = 0; t < config.N_STEPS; t += 1) {
-            	
-            	// *******************************
-            	// *******************************
-            	// PPP policy START
-            	// *******************************
-            	// *******************************
-            	// Policy experiments - last 50yrs
-            	if (t == (config.N_STEPS - 12*25))
-            	{	
-            		//LTV EXPERIMENT
-            		//bank.setAllLTV(0.8, 0.8, 0.8);
-            		
-            		//CREDIT SUPPLY EXPERIMENT
-            		//config.BANK_CREDIT_SUPPLY_TARGET = 300;
-            		
-            		//Debt service max policy experiment
-            		//config.CENTRAL_BANK_AFFORDABILITY_COEFF = 0.30;
-            		
-            		//COVID EXPERIMENT
-            		data.EmploymentIncome.permanently_shock_incomeAge(1-0.117f);
-            		for(Household h : households) h.shock_bankBalance(1-0.032f);
-            	}
-            	if (t == (config.N_STEPS - 1))
-            	{
-            		data.EmploymentIncome.permanently_shock_incomeAge(1/(1-0.117f));
-            	}
-            	// *******************************
-            	// *******************************
-            	// PPP policy END
-            	// *******************************
-            	// *******************************
-
-                // Steps model and stores sale and rental markets bid and offer prices, and their averages, into their
-                // respective variables
-                modelStep();
-
-                if (t >= config.TIME_TO_START_RECORDING) {
-                    // Write results of this time step and run to both multi- and single-run files
-                    // ---
-                    //recorder.writeTimeStampResults(config.recordCoreIndicators, t);
-                    // +++
-                	AvRentPrice[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getAvSalePrice();
-                    debtToIncome[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getDebtToIncome();
-                    ooLTI[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getOwnerOccupierLTIMeanAboveMedian();
-                    btlLTV[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getBuyToLetLTVMean();
-                    ooDebtToIncome[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getOODebtToIncome();
-                    mortgageApprovals[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getMortgageApprovals();
-                    dtiBorrowers[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.dtiBorrowers;
-                    priceToIncome[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getPriceToIncome();
-                    rentalYield[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getAvStockYield();
-                    interestRateSpread[t- config.TIME_TO_START_RECORDING] = Model.coreIndicators.getInterestRateSpread();
-                    nHomeless[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnHomeless();
-                    nRenting[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnRenting();
-                    nOwnerOccupier[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnOwnerOccupier();
-                    nBTL[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnBTL();
-                    
-                    // GC: commenting out the old line in which the number of defaulted households was counted
-                    // GC: now it is counted the percentage of newly NPL over the stock (number) of mortgages
-                    //nNonBTLBankruptcies[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnNonBTLBankruptcies();
-                    int nNewBankruptcies = Model.householdStats.getnNonBTLNewBakruptcies();
-                    int nMortgages = Model.creditSupply.getnRegisteredMortgages();
-                    if (nMortgages > 0)
-                    {
-                    	nNonBTLBankruptcies[t - config.TIME_TO_START_RECORDING] = (double)nNewBankruptcies / (double)nMortgages;
-                    } else {
-                    	nNonBTLBankruptcies[t - config.TIME_TO_START_RECORDING] = 0.0;
-                    }
-                    // GC: end of this change
-                    
-                    nBTLBankruptcies[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnBTLBankruptcies();
-                    housingStock[t - config.TIME_TO_START_RECORDING] = Model.construction.getHousingStock();
-                    nNewBuild[t - config.TIME_TO_START_RECORDING] = Model.construction.getnNewBuild();
-                    nEmptyHouses[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getnEmptyHouses();
-                    BTLStockFraction[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getBTLStockFraction();
-                    
-                    //nRegisteredMortgages[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getnRegisteredMortgages();
-                    nRegisteredMortgages[t - config.TIME_TO_START_RECORDING] = nMortgages;
-                    
-                    bankBalAll[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getbankBalAll();
-                    BankBalBTL[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getBankBalBTL();
-                    BankBalOO[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getBankBalOO();
-                    BankBalRent[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getBankBalRent();
-                    BankBalHomeless[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getBankBalHomeless();
-                    ActiveBTLAnnualisedTotalIncome[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getActiveBTLAnnualisedTotalIncome();
-                    OwnerOccupierAnnualisedTotalIncome[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getOwnerOccupierAnnualisedTotalIncome();
-                    RentingAnnualisedTotalIncome[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getRentingAnnualisedTotalIncome();
-                    HomelessAnnualisedTotalIncome[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getHomelessAnnualisedTotalIncome();
-                    AllAnnualisedTotalIncome[t - config.TIME_TO_START_RECORDING] = Model.householdStats.getAllAnnualisedTotalIncome();
-                    //ooLTV[t - config.TIME_TO_START_RECORDING] = Model.coreIndicators.getOwnerOccupierLTVMean();
-                    ltvBorrowers[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.ltvBorrowers;
-                    AvBidPrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvBidPrice();
-                    AvOfferPrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvOfferPrice();
-                    AvSalePrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvSalePrice();
-                    AvDaysOnMarket[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvDaysOnMarket();
-                    nBuyers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getnBuyers();
-                    nBTLBuyers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getnBTLBuyers();
-                    nSellers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getnSellers();
-                    nSales[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getnSales();
-                    supplyVal[t - config.TIME_TO_START_RECORDING] = Model.bank.getSupplyVal();
-                    nFTBMortgages[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.nFTBMortgages;
-                    nBTLMortgages[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.nBTLMortgages;
-                	totalBTLCredit[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.totalBTLCredit;
-                	totalOOCredit[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.totalOOCredit;
-                	avgDownpayment[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvgDownpayment();
-                	ooDSR[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.ooDSR;
-                	btlDSR[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.btlDSR;
-                	q1SalePrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvSalePricePerQualityQuartile(1);
-                	q2SalePrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvSalePricePerQualityQuartile(2);
-                	q3SalePrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvSalePricePerQualityQuartile(3);
-                	q4SalePrice[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvSalePricePerQualityQuartile(4);
-                	q1RentPrice[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getAvSalePricePerQualityQuartile(1);
-                	q2RentPrice[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getAvSalePricePerQualityQuartile(2);
-                	q3RentPrice[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getAvSalePricePerQualityQuartile(3);
-                	q4RentPrice[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getAvSalePricePerQualityQuartile(4);
-                	q1SaleN[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSalesPerQualityQuartile(1);
-                	q2SaleN[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSalesPerQualityQuartile(2);
-                	q3SaleN[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSalesPerQualityQuartile(3);
-                	q4SaleN[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSalesPerQualityQuartile(4);
-                	q1RentN[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getNSalesPerQualityQuartile(1);
-                	q2RentN[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getNSalesPerQualityQuartile(2);
-                	q3RentN[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getNSalesPerQualityQuartile(3);
-                	q4RentN[t - config.TIME_TO_START_RECORDING] = Model.rentalMarketStats.getNSalesPerQualityQuartile(4);
-                	q1Princ[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvPrincipalByQualityQuartile(1);
-                	q2Princ[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvPrincipalByQualityQuartile(2);
-                	q3Princ[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvPrincipalByQualityQuartile(3);
-                	q4Princ[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvPrincipalByQualityQuartile(4);
-                	q1Install[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvInstallByQualityQuartile(1);
-                	q2Install[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvInstallByQualityQuartile(2);
-                	q3Install[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvInstallByQualityQuartile(3);
-                	q4Install[t - config.TIME_TO_START_RECORDING] = Model.creditSupply.getAvInstallByQualityQuartile(4);
-                	q1NumSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSaleOffersPerQualityQuartile(1);
-                	q2NumSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSaleOffersPerQualityQuartile(2);
-                	q3NumSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSaleOffersPerQualityQuartile(3);
-                	q4NumSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getNSaleOffersPerQualityQuartile(4);
-                	q1MinSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMinOfferPerQualityQuartile(1);
-                	q2MinSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMinOfferPerQualityQuartile(2);
-                	q3MinSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMinOfferPerQualityQuartile(3);
-                	q4MinSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMinOfferPerQualityQuartile(4);
-                	q1MaxSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMaxOfferPerQualityQuartile(1);
-                	q2MaxSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMaxOfferPerQualityQuartile(2);
-                	q3MaxSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMaxOfferPerQualityQuartile(3);
-                	q4MaxSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getMaxOfferPerQualityQuartile(4);
-                	q1AvgSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvgOfferPerQualityQuartile(1);
-                	q2AvgSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvgOfferPerQualityQuartile(2);
-                	q3AvgSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvgOfferPerQualityQuartile(3);
-                	q4AvgSaleOffers[t - config.TIME_TO_START_RECORDING] = Model.housingMarketStats.getAvgOfferPerQualityQuartile(4);                	
-                }
-
-                // Print time information to screen
-                if (t % 1000 == 0) {
-                    System.out.println("Simulation: " + nSimulation + ", time: " + t);
-                    // System.out.println("Num households: " + Model.households.size());
-                    // System.out.println("Housing stock size: " + Model.construction.getHousingStock());
-                    // System.out.println("\n");
-                }
-            }
+        return model;
+    }
 
-            // Finish each simulation within the recorders (closing single-run files, changing line in multi-run files)
-            // ---
-            //recorder.finishRun(config.recordCoreIndicators);
-            // TODO: Check what this is actually doing and if it is necessary
-            // ---
-            ///if(config.recordMicroData) transactionRecorder.endOfSim();
-        }
-        
-    	results[0] = AvRentPrice;
-    	results[1] = debtToIncome;
-    	results[2] = ooLTI;
-    	results[3] = btlLTV;
-    	results[4] = ooDebtToIncome;
-    	results[5] = mortgageApprovals;
-    	results[6] = dtiBorrowers;
-    	results[7] = priceToIncome;
-    	results[8] = rentalYield;
-    	results[9] = interestRateSpread;
-    	results[10] = nHomeless;
-    	results[11] = nRenting;
-    	results[12] = nOwnerOccupier;
-    	results[13] = nBTL;
-    	results[14] = nNonBTLBankruptcies;
-    	results[15] = nBTLBankruptcies;
-    	results[16] = housingStock;
-        results[17] = nNewBuild;
-        results[18] = nEmptyHouses;
-        results[19] = BTLStockFraction;
-        results[20] = nRegisteredMortgages;
-        results[21] = bankBalAll;
-        results[22] = BankBalBTL;
-        results[23] = BankBalOO;
-        results[24] = BankBalRent;
-        results[25] = BankBalHomeless;
-        results[26] = ActiveBTLAnnualisedTotalIncome;
-        results[27] = OwnerOccupierAnnualisedTotalIncome;
-        results[28] = RentingAnnualisedTotalIncome;
-        results[29] = HomelessAnnualisedTotalIncome;
-        results[30] = AllAnnualisedTotalIncome;
-        //results[31] = ooLTV;
-        results[31] = ltvBorrowers;
-        results[32] = AvBidPrice;
-        results[33] = AvOfferPrice;
-        results[34] = AvSalePrice;
-        results[35] = AvDaysOnMarket;
-        results[36] = nBuyers;
-        results[37] = nBTLBuyers;
-        results[38] = nSellers;
-        results[39] = nSales;
-        results[40] = supplyVal;
-        results[41] = nFTBMortgages;
-        results[42] = nBTLMortgages;
-    	results[43] = totalBTLCredit;
-    	results[44] = totalOOCredit;
-    	results[45] = avgDownpayment;
-    	results[46] = ooDSR;
-    	results[47] = btlDSR;
-    	results[48] = q1SalePrice;
-    	results[49] = q2SalePrice;
-    	results[50] = q3SalePrice;
-    	results[51] = q4SalePrice;
-    	results[52] = q1RentPrice;
-    	results[53] = q2RentPrice;
-    	results[54] = q3RentPrice;
-    	results[55] = q4RentPrice;
-    	results[56] = q1SaleN;
-    	results[57] = q2SaleN;
-    	results[58] = q3SaleN;
-    	results[59] = q4SaleN;
-    	results[60] = q1RentN;
-    	results[61] = q2RentN;
-    	results[62] = q3RentN;
-    	results[63] = q4RentN;
-    	results[64] = q1Princ;
-    	results[65] = q2Princ;
-    	results[66] = q3Princ;
-    	results[67] = q4Princ;
-    	results[68] = q1Install;
-    	results[69] = q2Install;
-    	results[70] = q3Install;
-    	results[71] = q4Install;
-    	results[72] = q1NumSaleOffers;
-    	results[73] = q2NumSaleOffers;
-    	results[74] = q3NumSaleOffers;
-    	results[75] = q4NumSaleOffers;
-    	results[76] = q1MinSaleOffers;
-    	results[77] = q2MinSaleOffers;
-    	results[78] = q3MinSaleOffers;
-    	results[79] = q4MinSaleOffers;
-    	results[80] = q1MaxSaleOffers;
-    	results[81] = q2MaxSaleOffers;
-    	results[82] = q3MaxSaleOffers;
-    	results[83] = q4MaxSaleOffers;
-    	results[84] = q1AvgSaleOffers;
-    	results[85] = q2AvgSaleOffers;
-    	results[86] = q3AvgSaleOffers;
-    	results[87] = q4AvgSaleOffers;
-    	
+    /**
+     * Serialise results (an array of recorded time series) with Java serialization, to be returned through py4j
+     */
+    private static byte[] serialise(Object results) {
     	byte[] results2;
     	
     	java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
@@ -687,21 +474,181 @@ public class Model {
     		// nothing
     		results2 = new byte[1];
     	}
-    	
-    	long endTime = System.currentTimeMillis();
-		long time = (endTime - startTime)/(long)1000.0;
-        System.out.println("Total execution time: " + time + "secs."); 
-
     	return results2;
-    	
-        // After the last simulation, clean up
-        // ---
-        //recorder.finish(config.recordCoreIndicators);
-        //if(config.recordMicroData) transactionRecorder.finish();
+    }
 
-        // Stop the program when finished
+    /**
+     * Runs a single simulation of config.N_STEPS time steps on the simulation context created by ModelInit, storing
+     * the core time series of each step. If this Model was restored from a snapshot, the simulation is not started
+     * again, but continued from the time step at which the snapshot was taken.
+     *
+     * @param nSimulation Number of this simulation within the Monte Carlo ensemble it belongs to, starting at 1
+     * @return Array of recorded time series, indexed by [indicator][time step]
+     */
+    public double[][] runSimulation(int nSimulation) {
+        if (!started) startSimulation(nSimulation);
+        runUntil(config.N_STEPS);
+        context.workers.shutdown();
+        return getResults();
+    }
+
+    /**
+     * Starts a simulation on the simulation context created by ModelInit, initialising markets and collectors, but
+     * without running any time step
+     *
+     * @param nSimulation Number of this simulation within the Monte Carlo ensemble it belongs to, starting at 1
+     */
+    public void startSimulation(int nSimulation) {
+        context.nSimulation = nSimulation;
+
+    	if(writeCSV == true)
+    	{
+    		// For each simulation, open files for writing single-run results
+    		recorder.openSingleRunFiles(context.nSimulation);
+    	}
+        
+        // For each simulation, initialise both houseSaleMarket and houseRentalMarket variables (including HPI)
+        context.init();
+        nextTimeStep = 0;
+        started = true;
+    }
+
+    /**
+     * Runs the time steps of the current simulation from the next one to be run up to, but not including, tEnd (or
+     * config.N_STEPS, if smaller), storing the core time series of each step
+     *
+     * @param tEnd First time step not to be run
+     */
+    public void runUntil(int tEnd) {
+        if (!started) throw new IllegalStateException("A simulation must be started before running any time step");
+
+        for (int t = nextTimeStep; t < Math.min(tEnd, config.N_STEPS); t += 1) {
+            context.t = t;
+            nextTimeStep = t + 1;
+
+            // Apply any policy interventions scheduled for this time step
+            scenario.apply(context);
+
+            // Steps model and stores sale and rental markets bid and offer prices, and their averages, into their
+            // respective variables
+            context.step();
+
+            if (t >= config.TIME_TO_START_RECORDING) {
+                // Write results of this time step and run to both multi- and single-run files
+                // ---
+                //recorder.writeTimeStampResults(config.recordCoreIndicators, t);
+                for (int i = 0; i < indicators.length; i++) {
+                    results[i][t - config.TIME_TO_START_RECORDING] = indicators[i].get(context);
+                }
+            }
+
+            // Print time information to screen
+            if (t % 1000 == 0) {
+                System.out.println("Simulation: " + context.nSimulation + ", time: " + t);
+                // System.out.println("Num households: " + context.households.size());
+                // System.out.println("Housing stock size: " + context.construction.getHousingStock());
+                // System.out.println("\n");
+            }
+        }
+    }
+
+    /**
+     * @return Array of time series recorded so far in the current simulation, indexed by [indicator][time step], with
+     * zeros for the time steps not yet run
+     */
+    public double[][] getResults() {
+        // Finish each simulation within the recorders (closing single-run files, changing line in multi-run files)
         // ---
-        // System.exit(0);
+        //recorder.finishRun(config.recordCoreIndicators);
+        // TODO: Check what this is actually doing and if it is necessary
+        // ---
+        ///if(config.recordMicroData) transactionRecorder.endOfSim();
+
+        return results;
+    }
+
+    /**
+     * Serialise the complete state of this Model, i.e., its simulation context (with every agent, house, mortgage,
+     * market queue, collector and the state of the random number generator) and the time series recorded so far, so
+     * that the simulation can be restored and continued from the current time step as many times as needed. Output
+     * files are not part of the snapshot.
+     *
+     * @return Snapshot of this Model, to be passed to restore()
+     */
+    public byte[] snapshot() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(this);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not take a snapshot of the model at time step " + nextTimeStep, e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Restore a Model from a snapshot, so that runUntil() or runSimulation() continue the simulation from the time
+     * step at which the snapshot was taken exactly as the original Model would have. Each call returns a new Model,
+     * sharing no state with any other restored from the same snapshot.
+     *
+     * @param snapshot Snapshot taken with snapshot()
+     */
+    public static Model restore(byte[] snapshot) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot))) {
+            Model model = (Model)in.readObject();
+            model.indicators = getIndicators(model.indicatorNames);
+            model.writeCSV = false;
+            return model;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Could not restore the model from a snapshot", e);
+        }
+    }
+
+    /**
+     * Restore a Model from a snapshot, re-seeding its random number generator, so that different seeds branch
+     * different realisations of the simulation from a common state
+     *
+     * @param snapshot Snapshot taken with snapshot()
+     * @param rndSeed New seed for the random number generator
+     */
+    public static Model restore(byte[] snapshot, int rndSeed) {
+        Model model = restore(snapshot);
+        model.rndSeed = rndSeed;
+        model.prng.setSeed(rndSeed);
+        return model;
+    }
+
+    /**
+     * Set the indicators to be recorded at every time step, in the order of the first index of the results array, so
+     * that only the collectors they are computed from run during the simulation. To be called before the simulation is
+     * started, as it discards any time series recorded so far.
+     *
+     * @param indicatorNames Names of the indicators to record, as registered in collectors.IndicatorCatalogue
+     */
+    public void setIndicators(String... indicatorNames) {
+        if (started) throw new IllegalStateException("Indicators cannot be changed once a simulation has been started");
+        indicators = getIndicators(indicatorNames);
+        this.indicatorNames = indicatorNames.clone();
+        if (context != null) initIndicators();
+    }
+
+    /**
+     * Allocate the array where results are stored and activate only those optional collectors which the recorded
+     * indicators are computed from, unless writing output files, which need all of them
+     */
+    private void initIndicators() {
+        IndicatorCatalogue.setActiveCollectors(context, (writeCSV || config.recordCoreIndicators)
+                ? IndicatorCatalogue.ALL_COLLECTORS : IndicatorCatalogue.getCollectors(indicatorNames));
+        results = new double[indicators.length][config.N_STEPS - config.TIME_TO_START_RECORDING];
+    }
+
+    /**
+     * @return Indicators registered under the given names, in the same order
+     * @throws IllegalArgumentException If there is no indicator registered under any of the names
+     */
+    private static Indicator[] getIndicators(String[] indicatorNames) {
+        Indicator[] indicators = new Indicator[indicatorNames.length];
+        for (int i = 0; i < indicatorNames.length; i++) indicators[i] = IndicatorCatalogue.get(indicatorNames[i]);
+        return indicators;
     }
 
     public static void main(String[] args) {
@@ -721,53 +668,6 @@ public class Model {
         */
     }
 
-    private static void setupStatics() {
-        setRecordGeneral();
-        setRecordCoreIndicators(config.recordCoreIndicators);
-        setRecordMicroData(config.recordMicroData);
-    }
-
-    private static void init() {
-        construction.init();
-        houseSaleMarket.init();
-        houseRentalMarket.init();
-        bank.init();
-        centralBank.init();
-        housingMarketStats.init();
-        rentalMarketStats.init();
-        householdStats.init();
-        households.clear();
-    }
-
-    private static void modelStep() {
-        // Update population with births and deaths
-        demographics.step();
-        // Update number of houses
-        construction.step();
-        // Updates regional households consumption, housing decisions, and corresponding regional bids and offers
-        for(Household h : households) h.step();
-        // Stores sale market bid and offer prices and averages before bids are matched by clearing the market
-        housingMarketStats.preClearingRecord();
-        // Clears sale market and updates the HPI
-        houseSaleMarket.clearMarket();
-        // Computes and stores several housing market statistics after bids are matched by clearing the market (such as HPI, HPA)
-        housingMarketStats.postClearingRecord();
-        // Stores rental market bid and offer prices and averages before bids are matched by clearing the market
-        rentalMarketStats.preClearingRecord();
-        // Clears rental market
-        houseRentalMarket.clearMarket();
-        // Computes and stores several rental market statistics after bids are matched by clearing the market (such as HPI, HPA)
-        rentalMarketStats.postClearingRecord();
-        // Stores household statistics after both regional markets have been cleared
-        householdStats.record();
-        // Update credit supply statistics // TODO: Check what this actually does and if it should go elsewhere!
-        creditSupply.step();
-        // Update bank and interest rate for new mortgages
-        bank.step(Model.households.size());
-        // Update central bank policies (currently empty!)
-        centralBank.step(coreIndicators);
-    }
-
     /**
      * This method handles command line input arguments to
      * determine the address of the input config file and
@@ -775,7 +675,7 @@ public class Model {
      *
      * @param args String with the command line arguments
      */
-    private static void handleInputArguments(String[] args) {
+    private void handleInputArguments(String[] args) {
 
         // Create Options object
         Options options = new Options();
@@ -872,29 +772,26 @@ public class Model {
         }
     }
 
+    public MersenneTwister getPrng() { return prng; }
+
+    public SimulationContext getContext() { return context; }
+
     /**
-     * @return Simulated time in months
+     * @return Next time step to be run in the current simulation, i.e., the number of time steps already run
      */
-    static public int getTime() { return t; }
+    public int getNextTimeStep() { return nextTimeStep; }
 
     /**
-     * @return Current month of the simulation
+     * @return Names of the recorded indicators, in the order of the first index of the results array
      */
-    static public int getMonth() { return t%12 + 1; }
+    public String[] getIndicatorNames() { return indicatorNames.clone(); }
 
-    public MersenneTwister getPrng() { return prng; }
+    public PolicyScenario getScenario() { return scenario; }
 
-    private static void setRecordGeneral() {
-        creditSupply.setActive(true);
-        householdStats.setActive(true);
-        housingMarketStats.setActive(true);
-        rentalMarketStats.setActive(true);
-    }
-
-    private static void setRecordCoreIndicators(boolean recordCoreIndicators) {
-        coreIndicators.setActive(recordCoreIndicators);
-    }
-
-    private static void setRecordMicroData(boolean record) { transactionRecorder.setActive(record); }
+    /**
+     * Set the policy interventions to be applied during the rest of the simulation. By default, the interventions
+     * given by PolicyScenario.covid() are applied.
+     */
+    public void setScenario(PolicyScenario scenario) { this.scenario = scenario; }
 
 }
@@ -0,0 +1,125 @@
+package housing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**************************************************************************************************
+ * Class to run the replicates of a Monte Carlo ensemble concurrently on a bounded pool of threads.
+ * Each replicate is an independent Model, with its own simulation context and its own seed, so
+ * that replicates share no state and their results do not depend on the number of threads used
+ * or on the order in which they finish.
+ *
+ * @author daniel, Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class MonteCarloRunner {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private int     nThreads; // Maximum number of replicates running at the same time
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param nThreads Maximum number of replicates to run at the same time
+     */
+    public MonteCarloRunner(int nThreads) {
+        if (nThreads < 1) throw new IllegalArgumentException("At least one thread is needed, got " + nThreads);
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Creates a runner using as many threads as available processors
+     */
+    public MonteCarloRunner() { this(Runtime.getRuntime().availableProcessors()); }
+
+    //----------------------//
+    //----- Subclasses -----//
+    //----------------------//
+
+    /**
+     * Interface to create, for a given replicate and seed, a fully initialised Model ready to run a simulation, i.e.,
+     * with any config parameters already modified and ModelInit already called. It is called from the worker threads,
+     * so that each replicate is built and run by the same thread.
+     */
+    public interface ReplicateFactory {
+        Model newReplicate(int replicate, int seed);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Derive one seed per replicate from a base seed. The first replicate uses the base seed itself, so that a single
+     * replicate ensemble reproduces a single run with that seed.
+     *
+     * @param seed Base seed, typically config.SEED
+     * @param nSims Number of replicates
+     * @return Array with the seed of each replicate
+     */
+    public static int[] deriveSeeds(int seed, int nSims) {
+        int[] seeds = new int[nSims];
+        for (int i = 0; i < nSims; i++) seeds[i] = seed + i;
+        return seeds;
+    }
+
+    /**
+     * Run nSims replicates, with seeds derived from seed, concurrently on at most nThreads threads
+     *
+     * @param nSims Number of replicates
+     * @param seed Base seed from which the seed of each replicate is derived
+     * @param factory Factory creating the Model for each replicate
+     * @return Array of recorded time series, indexed by [replicate][indicator][time step]
+     */
+    public double[][][] run(int nSims, int seed, ReplicateFactory factory) {
+        return run(deriveSeeds(seed, nSims), factory);
+    }
+
+    /**
+     * Run one replicate per given seed concurrently on at most nThreads threads
+     *
+     * @param seeds Seed for each replicate
+     * @param factory Factory creating the Model for each replicate
+     * @return Array of recorded time series, indexed by [replicate][indicator][time step], in the order of seeds
+     */
+    public double[][][] run(int[] seeds, final ReplicateFactory factory) {
+        double[][][] results = new double[seeds.length][][];
+        if (seeds.length == 0) return results;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(nThreads, seeds.length));
+        try {
+            List<Future<double[][]>> futures = new ArrayList<>(seeds.length);
+            for (int i = 0; i < seeds.length; i++) {
+                final int replicate = i;
+                final int replicateSeed = seeds[i];
+                futures.add(pool.submit(new Callable<double[][]>() {
+                    @Override
+                    public double[][] call() {
+                        return factory.newReplicate(replicate, replicateSeed).runSimulation(replicate + 1);
+                    }
+                }));
+            }
+            // Collect results in replicate order, regardless of the order in which they finish
+            for (int i = 0; i < seeds.length; i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Monte Carlo replicates", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Monte Carlo replicate failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+}
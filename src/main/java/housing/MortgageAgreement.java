@@ -13,13 +13,17 @@ public class MortgageAgreement extends PaymentAgreement {
     //----- Fields -----//
     //------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	public double           downPayment;
 	public double           purchasePrice;
+    private Bank            bank; // Bank holding this mortgage in its books
     private boolean         isActive;
 	public final boolean    isBuyToLet;
 	public final boolean    isFirstTimeBuyer;
 	public double           principal; // Remaining principal to be paid off
 	double                  monthlyInterestRate;
+	int                     bookSlot = -1; // Slot of this mortgage in the bank's MortgageBook, -1 if not in it
 	
 	//GC:
 	public double			dti;
@@ -29,7 +33,8 @@ public class MortgageAgreement extends PaymentAgreement {
     //----- Constructors -----//
     //------------------------//
 
-	MortgageAgreement(Household borrower, boolean isBuyToLet) {
+	MortgageAgreement(Bank bank, Household borrower, boolean isBuyToLet) {
+		this.bank = bank;
 		this.isBuyToLet = isBuyToLet;
 		this.isFirstTimeBuyer = !isBuyToLet && borrower.isFirstTimeBuyer();
 		isActive = true;
@@ -61,6 +66,7 @@ public class MortgageAgreement extends PaymentAgreement {
         } else {
             nPayments -= 1; // ...then reduce number of payments due by one,
             principal = principal*(1.0 + monthlyInterestRate) - monthlyPayment; // ...reduce amount due by amount to be paid this month
+            if (bookSlot >= 0) bank.mortgages.setPrincipal(bookSlot, principal);
             return monthlyPayment; // ...and return the monthly payment
         }
 	}
@@ -77,10 +83,11 @@ public class MortgageAgreement extends PaymentAgreement {
             principal = 0.0;
             monthlyPayment = 0.0;
             nPayments = 0;
-            Model.bank.endMortgageContract(this);
+            bank.endMortgageContract(this);
 		} else {
 			monthlyPayment *= (principal - amount)/principal;
 			principal -= amount;
+			if (bookSlot >= 0) bank.mortgages.setPrincipal(bookSlot, principal);
 		}
         return amount;
     }
@@ -0,0 +1,160 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import utilities.FixedPointSum;
+
+/**************************************************************************************************
+ * Class to hold the unpaid mortgages of the bank, in order of approval, together with running
+ * totals of their principal, separately for owner-occupier and buy-to-let mortgages, and of their
+ * debt-to-income and loan-to-value ratios at approval. Each mortgage writes its principal through to
+ * its own slot whenever it changes, and the totals are updated with the change as it happens, so
+ * that the monthly credit aggregates cost O(1) rather than a pass over all mortgages.
+ *
+ * Principal changes and mortgages are paid off during the concurrent phase of the household step,
+ * in an order which depends on the number of threads. To keep the totals independent of that order,
+ * they are kept as FixedPointSum, whose additions and subtractions are exact whatever their order,
+ * so that the totals are always the sums of the values of the unpaid mortgages and never drift.
+ *
+ * Mortgages paid off during the concurrent phase leave a hole in their slot, which is only reclaimed
+ * when a new mortgage is added, always during a sequential phase, by compacting the columns in
+ * order. Thus, slots never move while mortgages are being paid.
+ *
+ * @author daniel, Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class MortgageBook implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    // Columns, indexed by mortgage slot
+    private MortgageAgreement[] mortgages; // Mortgage in each slot, null if paid off since the last compaction
+    private double[]            principal;
+    private boolean[]           isBuyToLet;
+
+    private int                 size; // Number of slots in use, including those of mortgages paid off since the last compaction
+    private int                 nMortgages; // Number of unpaid mortgages
+
+    // Running totals over the unpaid mortgages
+    private FixedPointSum       totalOOPrincipal = new FixedPointSum(); // Total principal of owner-occupier mortgages
+    private FixedPointSum       totalBTLPrincipal = new FixedPointSum(); // Total principal of buy-to-let mortgages
+    private FixedPointSum       totalDti = new FixedPointSum(); // Total debt-to-income ratio at approval
+    private FixedPointSum       totalLtv = new FixedPointSum(); // Total loan-to-value ratio at approval
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    MortgageBook() {
+        mortgages = new MortgageAgreement[1024];
+        principal = new double[1024];
+        isBuyToLet = new boolean[1024];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Add a new mortgage at the end of the book, to be called during a sequential phase only, since it may compact the
+     * columns, thus moving other mortgages to different slots
+     */
+    void add(MortgageAgreement m) {
+        if (size == mortgages.length) {
+            if (nMortgages <= size/2) compact(); else grow();
+        }
+        mortgages[size] = m;
+        principal[size] = m.principal;
+        isBuyToLet[size] = m.isBuyToLet;
+        principalTotal(size).add(m.principal);
+        totalDti.add(m.dti);
+        totalLtv.add(m.ltv);
+        m.bookSlot = size;
+        size++;
+        nMortgages++;
+    }
+
+    /**
+     * Remove a mortgage from the book, if it is in it, leaving its slot empty until the next compaction
+     */
+    void remove(MortgageAgreement m) {
+        int slot = m.bookSlot;
+        if (slot < 0 || mortgages[slot] != m) return;
+        principalTotal(slot).subtract(principal[slot]);
+        totalDti.subtract(m.dti);
+        totalLtv.subtract(m.ltv);
+        mortgages[slot] = null;
+        principal[slot] = 0.0;
+        m.bookSlot = -1;
+        nMortgages--;
+    }
+
+    /**
+     * Write through the principal of the mortgage in a given slot, to be called by the mortgage itself
+     */
+    void setPrincipal(int slot, double value) {
+        FixedPointSum total = principalTotal(slot);
+        total.subtract(principal[slot]);
+        total.add(value);
+        principal[slot] = value;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            if (mortgages[i] != null) mortgages[i].bookSlot = -1;
+            mortgages[i] = null;
+        }
+        size = 0;
+        nMortgages = 0;
+        totalOOPrincipal.reset();
+        totalBTLPrincipal.reset();
+        totalDti.reset();
+        totalLtv.reset();
+    }
+
+    /**
+     * @return Number of unpaid mortgages
+     */
+    public int size() { return nMortgages; }
+
+    public double getTotalOOPrincipal() { return totalOOPrincipal.getSum(); }
+
+    public double getTotalBTLPrincipal() { return totalBTLPrincipal.getSum(); }
+
+    public double getTotalDti() { return totalDti.getSum(); }
+
+    public double getTotalLtv() { return totalLtv.getSum(); }
+
+    private FixedPointSum principalTotal(int slot) { return isBuyToLet[slot] ? totalBTLPrincipal : totalOOPrincipal; }
+
+    /**
+     * Move all unpaid mortgages to the front of the columns, keeping their order
+     */
+    private void compact() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (mortgages[i] == null) continue;
+            if (i != n) {
+                mortgages[n] = mortgages[i];
+                principal[n] = principal[i];
+                isBuyToLet[n] = isBuyToLet[i];
+                mortgages[n].bookSlot = n;
+            }
+            n++;
+        }
+        Arrays.fill(mortgages, n, size, null);
+        size = n;
+    }
+
+    private void grow() {
+        int capacity = 2*mortgages.length;
+        mortgages = Arrays.copyOf(mortgages, capacity);
+        principal = Arrays.copyOf(principal, capacity);
+        isBuyToLet = Arrays.copyOf(isBuyToLet, capacity);
+    }
+}
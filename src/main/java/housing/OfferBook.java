@@ -0,0 +1,380 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**************************************************************************************************
+ * Class to hold the offers on a housing market, bucketed by the quality band of the house on
+ * offer. Each band is kept as an array-backed binary min-heap ordered by price and, for equal
+ * prices, by id, with the prices and ids copied into primitive arrays so that comparisons do not
+ * need to dereference the offers. Each offer keeps track of its position within its heap, so that
+ * it can be removed or re-priced in logarithmic time.
+ *
+ * Since the best offer for a given price is the cheapest offer of the best quality band with any
+ * offer at or below that price, finding it only requires a scan over the minima of the bands,
+ * which replaces the price-quality PriorityQueue2D and its uncovered frontier.
+ *
+ * Each band also keeps its offers in a max-heap by price, so that the minimum and maximum prices
+ * of each band are always at hand, and a listener, such as the statistics of the market, can be
+ * told of every offer added, repriced or removed, so as to keep its aggregates up to date without
+ * scanning the book.
+ *
+ * @author daniel, Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class OfferBook implements Iterable<HouseOfferRecord>, Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private double[][]              prices; // Price of each offer, indexed by [quality band][heap position]
+    private int[][]                 ids; // Id of each offer, indexed by [quality band][heap position]
+    private HouseOfferRecord[][]    offers; // Offers, indexed by [quality band][heap position]
+    private double[][]              maxPrices; // Price of each offer, indexed by [quality band][max-heap position]
+    private HouseOfferRecord[][]    maxOffers; // Offers, indexed by [quality band][max-heap position]
+    private int[]                   bandSizes; // Number of offers in each quality band
+    private int                     size; // Total number of offers
+    private Listener                listener; // Told of every change to the offers in the book, if not null
+    // Scratch buffers for updateAll, reused from call to call
+    private int[]                   nRepricedPerBand; // Number of offers of the current batch in each quality band
+    private double[]                oldPrices; // Price of each offer of the current batch before the update
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param nQuality Number of quality bands, such that every house has a quality in the interval [0, nQuality)
+     */
+    public OfferBook(int nQuality) {
+        prices = new double[nQuality][16];
+        ids = new int[nQuality][16];
+        offers = new HouseOfferRecord[nQuality][16];
+        maxPrices = new double[nQuality][16];
+        maxOffers = new HouseOfferRecord[nQuality][16];
+        bandSizes = new int[nQuality];
+        size = 0;
+        nRepricedPerBand = new int[nQuality];
+        oldPrices = new double[16];
+    }
+
+    //----------------------//
+    //----- Subclasses -----//
+    //----------------------//
+
+    /**
+     * Interface for an object to be told of every offer added to, repriced on, or removed from the book, each method
+     * being called once the book is up to date with the change. Clearing the book is not reported.
+     */
+    public interface Listener {
+        void offerAdded(HouseOfferRecord offer);
+        void offerRepriced(HouseOfferRecord offer, double oldPrice);
+        void offerRemoved(HouseOfferRecord offer);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Add a new offer to the heap of its quality band
+     */
+    public void add(HouseOfferRecord offer) {
+        int q = offer.getQuality();
+        int i = bandSizes[q];
+        if (i == offers[q].length) grow(q);
+        prices[q][i] = offer.getPrice();
+        ids[q][i] = offer.getId();
+        offers[q][i] = offer;
+        offer.bookPosition = i;
+        maxPrices[q][i] = offer.getPrice();
+        maxOffers[q][i] = offer;
+        offer.maxBookPosition = i;
+        bandSizes[q]++;
+        size++;
+        siftUp(q, i);
+        maxSiftUp(q, i);
+        if (listener != null) listener.offerAdded(offer);
+    }
+
+    /**
+     * Remove an offer from the heap of its quality band
+     */
+    public void remove(HouseOfferRecord offer) {
+        int q = offer.getQuality();
+        int i = offer.bookPosition;
+        if (i < 0 || i >= bandSizes[q] || offers[q][i] != offer) return; // Offer not in this book
+        int last = --bandSizes[q];
+        size--;
+        offer.bookPosition = -1;
+        if (i != last) {
+            move(q, last, i);
+            offers[q][last] = null;
+            if (!siftUp(q, i)) siftDown(q, i);
+        } else {
+            offers[q][last] = null;
+        }
+        int j = offer.maxBookPosition;
+        offer.maxBookPosition = -1;
+        if (j != last) {
+            maxMove(q, last, j);
+            maxOffers[q][last] = null;
+            if (!maxSiftUp(q, j)) maxSiftDown(q, j);
+        } else {
+            maxOffers[q][last] = null;
+        }
+        if (listener != null) listener.offerRemoved(offer);
+    }
+
+    /**
+     * Restore the ordering of the heap of the quality band of an offer whose price has changed
+     */
+    public void update(HouseOfferRecord offer) {
+        int q = offer.getQuality();
+        int i = offer.bookPosition;
+        int j = offer.maxBookPosition;
+        double oldPrice = prices[q][i];
+        prices[q][i] = offer.getPrice();
+        maxPrices[q][j] = offer.getPrice();
+        if (!siftUp(q, i)) siftDown(q, i);
+        if (!maxSiftUp(q, j)) maxSiftDown(q, j);
+        if (listener != null) listener.offerRepriced(offer, oldPrice);
+    }
+
+    /**
+     * Restore the ordering of the heaps of the quality bands of a batch of offers whose prices have changed. Within a
+     * band where most offers have changed, the heaps are rebuilt once for the whole band, while elsewhere each offer is
+     * sifted in turn
+     *
+     * @param batch Array with the offers whose prices have changed, holding their new prices
+     * @param n Number of offers in the array
+     */
+    public void updateAll(HouseOfferRecord[] batch, int n) {
+        if (oldPrices.length < n) oldPrices = new double[Math.max(n, 2*oldPrices.length)];
+        for (int k = 0; k < n; k++) nRepricedPerBand[batch[k].getQuality()]++;
+        for (int k = 0; k < n; k++) {
+            HouseOfferRecord offer = batch[k];
+            int q = offer.getQuality();
+            int i = offer.bookPosition;
+            int j = offer.maxBookPosition;
+            oldPrices[k] = prices[q][i];
+            prices[q][i] = offer.getPrice();
+            maxPrices[q][j] = offer.getPrice();
+            if (!isRebuilt(q)) {
+                if (!siftUp(q, i)) siftDown(q, i);
+                if (!maxSiftUp(q, j)) maxSiftDown(q, j);
+            }
+        }
+        for (int q = 0; q < bandSizes.length; q++) {
+            if (isRebuilt(q)) {
+                for (int i = bandSizes[q]/2 - 1; i >= 0; i--) {
+                    siftDown(q, i);
+                    maxSiftDown(q, i);
+                }
+            }
+            nRepricedPerBand[q] = 0;
+        }
+        if (listener != null) {
+            for (int k = 0; k < n; k++) listener.offerRepriced(batch[k], oldPrices[k]);
+        }
+    }
+
+    /**
+     * Find the highest quality offer with a price up to maxPrice and, among several such offers, the cheapest one,
+     * solving price ties by the smallest id
+     *
+     * @param maxPrice The highest price that can be paid
+     * @return The best offer, or null if no offer has a price up to maxPrice
+     */
+    public HouseOfferRecord peek(double maxPrice) {
+        for (int q = bandSizes.length - 1; q >= 0; q--) {
+            if (bandSizes[q] > 0 && prices[q][0] <= maxPrice) return offers[q][0];
+        }
+        return null;
+    }
+
+    public int size() { return size; }
+
+    /**
+     * @return Number of offers in quality band q
+     */
+    public int size(int q) { return bandSizes[q]; }
+
+    /**
+     * @return Lowest price among the offers in quality band q, which must not be empty
+     */
+    public double getMinPrice(int q) { return prices[q][0]; }
+
+    /**
+     * @return Highest price among the offers in quality band q, which must not be empty
+     */
+    public double getMaxPrice(int q) { return maxPrices[q][0]; }
+
+    /**
+     * Set the object to be told of every change to the offers in the book, replacing any previous one
+     */
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    public void clear() {
+        for (int q = 0; q < bandSizes.length; q++) {
+            for (int i = 0; i < bandSizes[q]; i++) {
+                offers[q][i].bookPosition = -1;
+                offers[q][i].maxBookPosition = -1;
+                offers[q][i] = null;
+                maxOffers[q][i] = null;
+            }
+            bandSizes[q] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Iterator through all the offers, band by band in increasing quality, and in no particular order within a band.
+     * The book must not be modified while iterating.
+     */
+    @Override
+    public Iterator<HouseOfferRecord> iterator() {
+        return new Iterator<HouseOfferRecord>() {
+            private int q = 0;
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (q < bandSizes.length && i >= bandSizes[q]) {
+                    q++;
+                    i = 0;
+                }
+                return q < bandSizes.length;
+            }
+
+            @Override
+            public HouseOfferRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return offers[q][i++];
+            }
+
+            @Override
+            public void remove() { throw new UnsupportedOperationException(); }
+        };
+    }
+
+    /**
+     * @return True if the offer at position i of band q precedes the one at position j, by price and then by id
+     */
+    private boolean less(int q, int i, int j) {
+        return prices[q][i] < prices[q][j] || (prices[q][i] == prices[q][j] && ids[q][i] < ids[q][j]);
+    }
+
+    /**
+     * @return True if the heaps of band q are to be rebuilt after the current batch of updates, i.e., if at least half of
+     * its offers are in the batch, rather than sifting each of them in turn
+     */
+    private boolean isRebuilt(int q) { return 2*nRepricedPerBand[q] >= bandSizes[q]; }
+
+    /**
+     * Move the offer at position from of band q to position to, overwriting whatever was there
+     */
+    private void move(int q, int from, int to) {
+        prices[q][to] = prices[q][from];
+        ids[q][to] = ids[q][from];
+        offers[q][to] = offers[q][from];
+        offers[q][to].bookPosition = to;
+    }
+
+    private void swap(int q, int i, int j) {
+        double price = prices[q][i];
+        int id = ids[q][i];
+        HouseOfferRecord offer = offers[q][i];
+        move(q, j, i);
+        prices[q][j] = price;
+        ids[q][j] = id;
+        offers[q][j] = offer;
+        offer.bookPosition = j;
+    }
+
+    /**
+     * @return True if the offer at position i of band q had to be moved up the heap
+     */
+    private boolean siftUp(int q, int i) {
+        boolean moved = false;
+        while (i > 0) {
+            int parent = (i - 1)/2;
+            if (!less(q, i, parent)) break;
+            swap(q, i, parent);
+            i = parent;
+            moved = true;
+        }
+        return moved;
+    }
+
+    private void siftDown(int q, int i) {
+        int n = bandSizes[q];
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && less(q, child + 1, child)) child++;
+            if (!less(q, child, i)) break;
+            swap(q, i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * Move the offer at position from of the max-heap of band q to position to, overwriting whatever was there
+     */
+    private void maxMove(int q, int from, int to) {
+        maxPrices[q][to] = maxPrices[q][from];
+        maxOffers[q][to] = maxOffers[q][from];
+        maxOffers[q][to].maxBookPosition = to;
+    }
+
+    private void maxSwap(int q, int i, int j) {
+        double price = maxPrices[q][i];
+        HouseOfferRecord offer = maxOffers[q][i];
+        maxMove(q, j, i);
+        maxPrices[q][j] = price;
+        maxOffers[q][j] = offer;
+        offer.maxBookPosition = j;
+    }
+
+    /**
+     * @return True if the offer at position i of the max-heap of band q had to be moved up the heap
+     */
+    private boolean maxSiftUp(int q, int i) {
+        boolean moved = false;
+        while (i > 0) {
+            int parent = (i - 1)/2;
+            if (maxPrices[q][i] <= maxPrices[q][parent]) break;
+            maxSwap(q, i, parent);
+            i = parent;
+            moved = true;
+        }
+        return moved;
+    }
+
+    private void maxSiftDown(int q, int i) {
+        int n = bandSizes[q];
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && maxPrices[q][child + 1] > maxPrices[q][child]) child++;
+            if (maxPrices[q][child] <= maxPrices[q][i]) break;
+            maxSwap(q, i, child);
+            i = child;
+        }
+    }
+
+    private void grow(int q) {
+        int capacity = 2*offers[q].length;
+        prices[q] = Arrays.copyOf(prices[q], capacity);
+        ids[q] = Arrays.copyOf(ids[q], capacity);
+        offers[q] = Arrays.copyOf(offers[q], capacity);
+        maxPrices[q] = Arrays.copyOf(maxPrices[q], capacity);
+        maxOffers[q] = Arrays.copyOf(maxOffers[q], capacity);
+    }
+}
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent a payment contract in general, so as to include both mortgage and rental
  * contracts. It keeps track of the monthly payments associated to the contract and the number of
@@ -8,12 +10,14 @@ package housing;
  * @author daniel, davidrpugh, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class PaymentAgreement {
+public class PaymentAgreement implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     int 		    nPayments;
     public double 	monthlyPayment;
 
@@ -0,0 +1,192 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**************************************************************************************************
+ * Class to represent a policy scenario, i.e., a schedule of interventions, each one applied to the
+ * simulation context at the start of a given time step, before the model is stepped. Scenarios
+ * are independent of the Model they are applied to, so that a grid of them can be applied to
+ * Models restored from a single warm-up snapshot and run concurrently.
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class PolicyScenario implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<Integer>          times; // Time step at which each intervention is applied
+    private ArrayList<Intervention>     interventions; // Interventions, in the order in which they were scheduled
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Creates an empty scenario, i.e., one without any intervention
+     */
+    public PolicyScenario() {
+        times = new ArrayList<>();
+        interventions = new ArrayList<>();
+    }
+
+    //----------------------//
+    //----- Subclasses -----//
+    //----------------------//
+
+    /**
+     * Interface for any change to be made to the state of a simulation. Implementations must be serializable, as they
+     * are part of the state of the Model running them.
+     */
+    public interface Intervention extends Serializable {
+        void apply(SimulationContext context);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Schedule an intervention at a given time step. Interventions scheduled at the same time step are applied in the
+     * order in which they were scheduled.
+     *
+     * @param t Time step at the start of which the intervention is applied
+     * @param intervention Intervention to apply
+     * @return This scenario, so that calls can be chained
+     */
+    public PolicyScenario at(int t, Intervention intervention) {
+        times.add(t);
+        interventions.add(intervention);
+        return this;
+    }
+
+    /**
+     * Apply every intervention scheduled at the current time step of the context
+     */
+    public void apply(SimulationContext context) {
+        for (int i = 0; i < interventions.size(); i++) {
+            if (times.get(i) == context.t) interventions.get(i).apply(context);
+        }
+    }
+
+    /**
+     * Policy experiment run by default: a permanent shock to employment income and a one-off shock to bank balances
+     * during the last 25 years of the simulation, the income shock being reverted at the last time step
+     *
+     * @param nSteps Total number of time steps of the simulation
+     */
+    public static PolicyScenario covid(int nSteps) {
+        return new PolicyScenario()
+                .at(nSteps - 12*25, shockEmploymentIncome(1 - 0.117f))
+                .at(nSteps - 12*25, shockBankBalances(1 - 0.032f))
+                .at(nSteps - 1, shockEmploymentIncome(1/(1 - 0.117f)));
+    }
+
+    //----- Interventions -----//
+
+    /**
+     * Set the bank's internal Loan-To-Value limits for first-time buyers, owner-occupiers and buy-to-let investors
+     */
+    public static Intervention setLTVLimits(double ftbLTV, double ooLTV, double btlLTV) {
+        return new SetLTVLimits(ftbLTV, ooLTV, btlLTV);
+    }
+
+    /**
+     * Set the bank's target supply of credit per household per month
+     */
+    public static Intervention setCreditSupplyTarget(double creditSupplyTarget) {
+        return new SetCreditSupplyTarget(creditSupplyTarget);
+    }
+
+    /**
+     * Set the maximum fraction of the household's income to be spent on mortgage repayments under stressed conditions
+     */
+    public static Intervention setAffordabilityCoefficient(double affordabilityCoefficient) {
+        return new SetAffordabilityCoefficient(affordabilityCoefficient);
+    }
+
+    /**
+     * Permanently multiply the employment income of every age and percentile band by a factor
+     */
+    public static Intervention shockEmploymentIncome(float factor) { return new ShockEmploymentIncome(factor); }
+
+    /**
+     * Multiply the bank balance of every household by a factor
+     */
+    public static Intervention shockBankBalances(float factor) { return new ShockBankBalances(factor); }
+
+    // Interventions are named classes, rather than anonymous ones, so that their serialised form does not depend on
+    // the order in which they are declared
+
+    private static class SetLTVLimits implements Intervention {
+        private static final long serialVersionUID = 1L;
+
+        private final double ftbLTV;
+        private final double ooLTV;
+        private final double btlLTV;
+
+        SetLTVLimits(double ftbLTV, double ooLTV, double btlLTV) {
+            this.ftbLTV = ftbLTV;
+            this.ooLTV = ooLTV;
+            this.btlLTV = btlLTV;
+        }
+
+        @Override
+        public void apply(SimulationContext context) { context.bank.setAllLTV(ftbLTV, ooLTV, btlLTV); }
+    }
+
+    private static class SetCreditSupplyTarget implements Intervention {
+        private static final long serialVersionUID = 1L;
+
+        private final double creditSupplyTarget;
+
+        SetCreditSupplyTarget(double creditSupplyTarget) { this.creditSupplyTarget = creditSupplyTarget; }
+
+        @Override
+        public void apply(SimulationContext context) { context.config.BANK_CREDIT_SUPPLY_TARGET = creditSupplyTarget; }
+    }
+
+    private static class SetAffordabilityCoefficient implements Intervention {
+        private static final long serialVersionUID = 1L;
+
+        private final double affordabilityCoefficient;
+
+        SetAffordabilityCoefficient(double affordabilityCoefficient) {
+            this.affordabilityCoefficient = affordabilityCoefficient;
+        }
+
+        @Override
+        public void apply(SimulationContext context) {
+            context.config.CENTRAL_BANK_AFFORDABILITY_COEFF = affordabilityCoefficient;
+        }
+    }
+
+    private static class ShockEmploymentIncome implements Intervention {
+        private static final long serialVersionUID = 1L;
+
+        private final float factor;
+
+        ShockEmploymentIncome(float factor) { this.factor = factor; }
+
+        @Override
+        public void apply(SimulationContext context) { context.employmentIncome.permanently_shock_incomeAge(factor); }
+    }
+
+    private static class ShockBankBalances implements Intervention {
+        private static final long serialVersionUID = 1L;
+
+        private final float factor;
+
+        ShockBankBalances(float factor) { this.factor = factor; }
+
+        @Override
+        public void apply(SimulationContext context) {
+            for(Household h : context.households) h.shock_bankBalance(factor);
+        }
+    }
+}
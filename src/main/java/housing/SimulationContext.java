@@ -0,0 +1,211 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import collectors.*;
+import utilities.WorkerPool;
+
+import org.apache.commons.math3.random.MersenneTwister;
+
+/**************************************************************************************************
+ * Class to hold the complete state of a single simulation run: its configuration parameters, its
+ * random number generator, the data read from external files, all the agents and markets, and the
+ * collectors recording their statistics. Every object belonging to a run keeps a reference to its
+ * context rather than to static fields, so that several independent runs can be created and
+ * executed concurrently within the same JVM.
+ *
+ * @author daniel, Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class SimulationContext implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int            MIN_HOUSEHOLDS_PER_WORKER = 500; // Minimum number of households stepped by each thread
+
+    public final Config                 config;
+    public final MersenneTwister        prng;
+    public final WorkerPool             workers; // Threads for the parallel phases of each time step
+
+    // Calibration data, read from the files indicated in the configuration
+    public final data.Demographics      demographicsData;
+    public final data.EmploymentIncome  employmentIncome;
+    public final data.Government        governmentData;
+    public final data.HouseSaleMarket   houseSaleMarketData;
+
+    // Agents and markets
+    public Construction		            construction;
+    public CentralBank		            centralBank;
+    public Bank 				        bank;
+    public HouseSaleMarket              houseSaleMarket;
+    public HouseRentalMarket            houseRentalMarket;
+    public ArrayList<Household>         households;
+    public HouseholdTable               householdTable; // Numeric state of the households, in columns indexed by slot
+    Government		                    government;
+    Demographics		                demographics;
+
+    // Collectors
+    public CreditSupply                 creditSupply;
+    public CoreIndicators               coreIndicators;
+    public HouseholdStats               householdStats;
+    public HousingMarketStats           housingMarketStats;
+    public RentalMarketStats            rentalMarketStats;
+    public MicroDataRecorder            transactionRecorder;
+
+    public int	                        nSimulation; // To keep track of the simulation number
+    public int	                        t; // To keep track of time (in months)
+
+    // Counters for the unique, repeatable ids of households, houses and market records within this context
+    private int                         householdIdPool = 0;
+    private int                         houseIdPool = 0;
+    private int                         marketRecordIdPool = 0;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Create and initialise all the agents, markets and collectors of a simulation run
+     *
+     * @param config Configuration parameters for this run, with derived parameters already set
+     * @param prng Random number generator for this run
+     * @param incomeShockProb Monthly probability of a household receiving an income shock
+     * @param outputFolder Folder in which to write output files, if any
+     */
+    public SimulationContext(Config config, MersenneTwister prng, double incomeShockProb, String outputFolder) {
+        this.config = config;
+        this.prng = prng;
+        workers = new WorkerPool(config.N_WORKER_THREADS);
+
+        demographicsData = new data.Demographics(config);
+        employmentIncome = new data.EmploymentIncome(config);
+        governmentData = new data.Government(config);
+        houseSaleMarketData = new data.HouseSaleMarket(config);
+
+        government = new Government(this);
+        demographics = new Demographics(this, incomeShockProb);
+        construction = new Construction(this);
+        centralBank = new CentralBank(this);
+        bank = new Bank(this);
+        households = new ArrayList<>(config.TARGET_POPULATION*2);
+        householdTable = new HouseholdTable(config.TARGET_POPULATION*2);
+        houseSaleMarket = new HouseSaleMarket(this);
+        houseRentalMarket = new HouseRentalMarket(this);
+
+        transactionRecorder = new MicroDataRecorder(this, outputFolder);
+        creditSupply = new CreditSupply(this, outputFolder);
+        coreIndicators = new CoreIndicators(this);
+        householdStats = new HouseholdStats(this);
+        housingMarketStats = new HousingMarketStats(this, houseSaleMarket);
+        rentalMarketStats = new RentalMarketStats(this, housingMarketStats, houseRentalMarket);
+
+        nSimulation = 0;
+
+        // Start data collectors
+        setRecordGeneral();
+        setRecordCoreIndicators(config.recordCoreIndicators);
+        setRecordMicroData(config.recordMicroData);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Initialise both houseSaleMarket and houseRentalMarket variables (including HPI), to be called at the start of
+     * each simulation
+     */
+    public void init() {
+        construction.init();
+        houseSaleMarket.init();
+        houseRentalMarket.init();
+        bank.init();
+        centralBank.init();
+        housingMarketStats.init();
+        rentalMarketStats.init();
+        householdStats.init();
+        households.clear();
+        householdTable.clear();
+    }
+
+    /**
+     * Steps the model for one month and stores sale and rental markets bid and offer prices, and their averages, into
+     * their respective variables
+     */
+    public void step() {
+        // Update population with births and deaths
+        demographics.step();
+        // Update number of houses
+        construction.step();
+        // Updates regional households consumption, housing decisions, and corresponding regional bids and offers, first
+        // concurrently for the part of the step local to each household, then sequentially, in id order, for the part
+        // with effects on the markets
+        final long streamSeed = prng.nextLong();
+        workers.run(households.size(), MIN_HOUSEHOLDS_PER_WORKER, new WorkerPool.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) households.get(i).stepLocal(streamSeed);
+            }
+        });
+        for(Household h : households) h.stepMarkets();
+        // Stores sale market bid and offer prices and averages before bids are matched by clearing the market
+        housingMarketStats.preClearingRecord();
+        // Clears sale market and updates the HPI
+        houseSaleMarket.clearMarket();
+        // Computes and stores several housing market statistics after bids are matched by clearing the market (such as HPI, HPA)
+        housingMarketStats.postClearingRecord();
+        // Stores rental market bid and offer prices and averages before bids are matched by clearing the market
+        rentalMarketStats.preClearingRecord();
+        // Clears rental market
+        houseRentalMarket.clearMarket();
+        // Computes and stores several rental market statistics after bids are matched by clearing the market (such as HPI, HPA)
+        rentalMarketStats.postClearingRecord();
+        // Stores household statistics after both regional markets have been cleared, if any recorded indicator needs them
+        if (householdStats.isActive()) householdStats.record();
+        // Update credit supply statistics, if any recorded indicator needs them
+        // TODO: Check what this actually does and if it should go elsewhere!
+        if (creditSupply.isActive()) creditSupply.step();
+        // Update bank and interest rate for new mortgages
+        bank.step(households.size());
+        // Update central bank policies (currently empty!)
+        centralBank.step(coreIndicators);
+    }
+
+    private void setRecordGeneral() {
+        creditSupply.setActive(true);
+        householdStats.setActive(true);
+        housingMarketStats.setActive(true);
+        rentalMarketStats.setActive(true);
+    }
+
+    private void setRecordCoreIndicators(boolean recordCoreIndicators) {
+        coreIndicators.setActive(recordCoreIndicators);
+    }
+
+    private void setRecordMicroData(boolean record) { transactionRecorder.setActive(record); }
+
+    //----- Getter/setter methods -----//
+
+    /**
+     * @return Simulated time in months
+     */
+    public int getTime() { return t; }
+
+    /**
+     * @return Current month of the simulation
+     */
+    public int getMonth() { return t%12 + 1; }
+
+    public MersenneTwister getPrng() { return prng; }
+
+    int nextHouseholdId() { return ++householdIdPool; }
+
+    int nextHouseId() { return ++houseIdPool; }
+
+    int nextMarketRecordId() { return marketRecordIdPool++; }
+}
@@ -0,0 +1,161 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**************************************************************************************************
+ * Class to encode arrays of recorded time series in a compact binary layout which can be read
+ * without any parsing, e.g., with numpy.frombuffer or numpy.memmap. All values are little-endian:
+ *
+ *   offset 0   4 bytes     magic "HMRS"
+ *   offset 4   int32       format version (currently 1)
+ *   offset 8   int32       data offset, i.e., header length in bytes (a multiple of 8)
+ *   offset 12  int32       number of dimensions, ndim
+ *   offset 16  int32[ndim] shape, with the indicator dimension second to last and time last
+ *   ...        int32       length in bytes of the indicator names
+ *   ...        bytes       indicator names, UTF-8 encoded and separated by '\n'
+ *   ...        zero padding up to the data offset
+ *   data offset            float64 values in row-major (C) order
+ *
+ * From python, given the header fields, the data can be read as
+ *   numpy.frombuffer(buffer, dtype='<f8', offset=dataOffset).reshape(shape)
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class BinaryResults {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    public static final int     VERSION = 1;
+    private static final byte[] MAGIC = {'H', 'M', 'R', 'S'};
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Encode results indexed by [indicator][time step] into a new direct byte buffer
+     */
+    public static ByteBuffer toDirectBuffer(String[] names, double[][] results) {
+        return toDirectBuffer(names, new double[][][] {results}, false);
+    }
+
+    /**
+     * Encode results indexed by [simulation][indicator][time step] into a new direct byte buffer
+     */
+    public static ByteBuffer toDirectBuffer(String[] names, double[][][] results) {
+        return toDirectBuffer(names, results, true);
+    }
+
+    /**
+     * Encode results indexed by [simulation][indicator][time step] into a byte array, for transports (such as py4j)
+     * which can only pass arrays
+     */
+    public static byte[] toByteArray(String[] names, double[][][] results) {
+        int[] shape = shapeOf(results, true);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(names, shape));
+        write(buffer, names, shape, results);
+        return buffer.array();
+    }
+
+    /**
+     * Encode results indexed by [simulation][indicator][time step] into a file, which is memory-mapped for writing and
+     * can therefore be memory-mapped for reading as well
+     *
+     * @param fileName Name of the file to be created or overwritten
+     */
+    public static void writeToFile(String fileName, String[] names, double[][][] results) throws IOException {
+        int[] shape = shapeOf(results, true);
+        int size = encodedSize(names, shape);
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            write(buffer, names, shape, results);
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return Total length in bytes, header included, of the encoding of results with the given names and shape
+     */
+    public static int encodedSize(String[] names, int[] shape) {
+        long nValues = 1;
+        for (int n : shape) nValues *= n;
+        long size = dataOffset(names, shape) + 8*nValues;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Results too large to be encoded in a single buffer: " + size + " bytes");
+        }
+        return (int)size;
+    }
+
+    private static ByteBuffer toDirectBuffer(String[] names, double[][][] results, boolean keepSimDimension) {
+        int[] shape = shapeOf(results, keepSimDimension);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encodedSize(names, shape));
+        write(buffer, names, shape, results);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Write header and data into buffer, starting at its current position
+     */
+    private static void write(ByteBuffer buffer, String[] names, int[] shape, double[][][] results) {
+        int start = buffer.position();
+        int dataOffset = dataOffset(names, shape);
+        byte[] encodedNames = encodeNames(names);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(dataOffset);
+        buffer.putInt(shape.length);
+        for (int n : shape) buffer.putInt(n);
+        buffer.putInt(encodedNames.length);
+        buffer.put(encodedNames);
+        while (buffer.position() < start + dataOffset) buffer.put((byte)0);
+        for (double[][] simulation : results) {
+            for (double[] series : simulation) {
+                buffer.asDoubleBuffer().put(series);
+                buffer.position(buffer.position() + 8*series.length);
+            }
+        }
+    }
+
+    private static int[] shapeOf(double[][][] results, boolean keepSimDimension) {
+        int nIndicators = (results.length > 0) ? results[0].length : 0;
+        int nSteps = (nIndicators > 0) ? results[0][0].length : 0;
+        for (double[][] simulation : results) {
+            if (simulation.length != nIndicators) throw new IllegalArgumentException("Ragged results array");
+            for (double[] series : simulation) {
+                if (series.length != nSteps) throw new IllegalArgumentException("Ragged results array");
+            }
+        }
+        if (keepSimDimension) {
+            return new int[] {results.length, nIndicators, nSteps};
+        } else {
+            return new int[] {nIndicators, nSteps};
+        }
+    }
+
+    private static int dataOffset(String[] names, int[] shape) {
+        int headerLength = MAGIC.length + 4 + 4 + 4 + 4*shape.length + 4 + encodeNames(names).length;
+        return (headerLength + 7)/8*8;
+    }
+
+    private static byte[] encodeNames(String[] names) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) joined.append('\n');
+            joined.append(names[i]);
+        }
+        return joined.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -3,6 +3,7 @@ package utilities;
 import java.util.ArrayList;
 
 public class BinnedData<DATA> extends ArrayList<DATA> {
+	private static final long serialVersionUID = 1L;
 	
 	public BinnedData(double firstBinMin, double binWidth) {
 		this.firstBinMin = firstBinMin;
@@ -14,6 +14,7 @@ import org.apache.commons.csv.CSVRecord;
  *  @author daniel, Adrian Carro
  */
 public class BinnedDataDouble extends BinnedData<Double> {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Loads data from a .csv file. The file should be in the format {bin min, min max, value}, with as many initial
@@ -0,0 +1,57 @@
+package utilities;
+
+import java.io.Serializable;
+
+/**************************************************************************************************
+ * Class to keep a running sum of doubles which may be added and subtracted from several threads,
+ * in any order, and still give exactly the same result. Each value is split into its integer part
+ * and its fractional part, truncated to 63 binary digits, and both parts are accumulated in 128-bit
+ * fixed point, as a pair of longs, whose additions are exact and thus independent of their order.
+ * Subtracting a value previously added removes it exactly, so the sum never drifts over time.
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class FixedPointSum implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private long    integerPart;
+    private long    fractionalPart; // In units of 2^-63, always within [0, 2^63)
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    public synchronized void add(double value) {
+        double floor = Math.floor(value);
+        integerPart += (long)floor;
+        fractionalPart += (long)((value - floor)*0x1p63);
+        if (fractionalPart < 0) { // Carry
+            fractionalPart &= Long.MAX_VALUE;
+            integerPart++;
+        }
+    }
+
+    public synchronized void subtract(double value) {
+        double floor = Math.floor(value);
+        integerPart -= (long)floor;
+        fractionalPart -= (long)((value - floor)*0x1p63);
+        if (fractionalPart < 0) { // Borrow
+            fractionalPart += Long.MAX_VALUE;
+            fractionalPart++;
+            integerPart--;
+        }
+    }
+
+    public synchronized void reset() {
+        integerPart = 0;
+        fractionalPart = 0;
+    }
+
+    public synchronized double getSum() { return integerPart + fractionalPart*0x1p-63; }
+}
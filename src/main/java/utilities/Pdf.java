@@ -1,16 +1,23 @@
 package utilities;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import java.io.Serializable;
+
+import org.apache.commons.math3.random.RandomGenerator;
 
 /****
  * Represents an arbitrarily shaped, 1-dimensional Probability Density Function.
  * Supply a DoubleUnaryOperator class that returns the probability density for
  * a given value.
  *
+ * Samples are drawn through a piecewise linear inverse CDF, which is exact for
+ * binned data (with a knot at each bin edge) and is otherwise built by numerical
+ * integration at nSamples equi-spaced quantiles.
+ *
  * @author daniel
  *
  */
-public class Pdf {
+public class Pdf implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/***
 	 * Read the pdf from a binned .csv file. The format should be as specified in
@@ -56,26 +63,18 @@ public class Pdf {
 	}
 
 	public void setPdf(final BinnedDataDouble data) {
-		pdf = new DoubleUnaryOperator() {
-			public double applyAsDouble(double operand) {
-				return data.getBinAt(operand)/data.getBinWidth();
-			}};
+		pdf = new BinnedDensity(data);
 		start = data.getSupportLowerBound();
 		end = data.getSupportUpperBound();
-		nSamples = DEFAULT_CDF_SAMPLES;
-		initInverseCDF();
+		nSamples = data.size() + 1;
+		initBinnedInverseCDF(data);
 	}
 
-	public void setPdf(final BinnedDataDouble data, int NSamples) {
-		pdf = new DoubleUnaryOperator() {
-			public double applyAsDouble(double operand) {
-				return data.getBinAt(operand)/data.getBinWidth();
-			}};
-		start = data.getSupportLowerBound();
-		end = data.getSupportUpperBound();
-		nSamples = NSamples;
-		initInverseCDF();
-	}
+	/***
+	 * The inverse CDF of binned data being exact, with a knot at each bin edge, the number of samples is not used
+	 * and is only kept for compatibility
+	 */
+	public void setPdf(final BinnedDataDouble data, int NSamples) { setPdf(data); }
 
 	public double getSupportLowerBound() { return start; }
 
@@ -91,13 +90,50 @@ public class Pdf {
 		return(pdf.applyAsDouble(x));
 	}
 
+	/***
+	 * Get the value x at which the cumulative probability reaches p
+	 * @param p cumulative probability, in the interval [0,1)
+	 * @return x such that P(X<x) = p
+	 */
 	public double inverseCumulativeProbability(double p) {
 		if(p < 0.0 || p>=1.0) throw(new IllegalArgumentException("p must be in the interval [0,1)"));
-		int i = (int)(p*(nSamples-1));
-		double remainder = p*(nSamples-1) - i;
-		return((1.0-remainder)*inverseCDF[i] + remainder*inverseCDF[i+1]);
+		return(interpolateInverseCDF(p));
+	}
+
+	/***
+	 * Linear interpolation of the inverse CDF between the two knots around p, found by binary search, without any
+	 * range check, p being assumed to be in [0,1)
+	 */
+	private double interpolateInverseCDF(double p) {
+		int lo = 0;
+		int hi = cdfKnots.length - 1;
+		// Find the last knot with a cumulative probability up to p, which is followed by a knot with a higher one
+		while(hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if(cdfKnots[mid] <= p) lo = mid; else hi = mid;
+		}
+		return(xKnots[lo] + (p - cdfKnots[lo])*(xKnots[lo+1] - xKnots[lo])/(cdfKnots[lo+1] - cdfKnots[lo]));
 	}
 
+	/***
+	 * Build the inverse CDF of binned data exactly: since the density is constant within each bin, the CDF is
+	 * piecewise linear with a knot at each bin edge, and so is its inverse
+	 */
+	private void initBinnedInverseCDF(BinnedDataDouble data) {
+		int nBins = data.size();
+		double total = 0.0;
+		for(double binProbability : data) total += binProbability;
+		cdfKnots = new double[nBins+1];
+		xKnots = new double[nBins+1];
+		double cp = 0.0;
+		for(int i=0; i<nBins; ++i) {
+			cdfKnots[i] = cp;
+			xKnots[i] = start + i*data.getBinWidth();
+			cp += data.get(i)/total;
+		}
+		cdfKnots[nBins] = 1.0;
+		xKnots[nBins] = end;
+	}
 
 	/***
 	 * integrates "pdf" over "INTEGRATION_STEPS" steps, starting at
@@ -110,15 +146,18 @@ public class Pdf {
 		double x;		// x in P(x)
 		int INTEGRATION_STEPS = 2048;
 		double dcp_dx;
+		double dx;		// dx between samples
 		int i;
 
-		inverseCDF = new double[nSamples];
+		cdfKnots = new double[nSamples];
+		xKnots = new double[nSamples];
 		dx = (end-start)/INTEGRATION_STEPS;
 		x = start + dx/2.0;
 		cp = 0.0;
 		dcp_dx = 0.0;
-		inverseCDF[0] = start;
-		inverseCDF[nSamples-1] = end;
+		xKnots[0] = start;
+		xKnots[nSamples-1] = end;
+		cdfKnots[nSamples-1] = 1.0;
 		for(i=1; i<(nSamples-1); ++i) {
 			targetcp = i/(nSamples-1.0);
 			while(cp < targetcp && x < end) {
@@ -132,27 +171,50 @@ public class Pdf {
 			} else {
 				x = end;
 			}
-			inverseCDF[i] = x;
+			cdfKnots[i] = targetcp;
+			xKnots[i] = x;
 		}
 	}
 
 	/***
-	 * Sample from the PDF
+	 * Sample from the PDF, drawing a single uniform number
 	 * @return A random sample from the PDF
 	 */
-	public double nextDouble(MersenneTwister rand) {
-		return(inverseCumulativeProbability(rand.nextDouble()));
-//		double uniform = rand.nextDouble(); // uniform random sample on [0:1)
-//		int i = (int)(uniform*(nSamples-1));
-//		double remainder = uniform*(nSamples-1.0) - i;
-//		return((1.0-remainder)*inverseCDF[i] + remainder*inverseCDF[i+1]);
+	public double nextDouble(RandomGenerator rand) {
+		return(interpolateInverseCDF(rand.nextDouble()));
+	}
+
+	/***
+	 * Fill an array with independent samples from the PDF, drawing a single uniform number per sample
+	 * @param out array to fill
+	 */
+	public void fill(double [] out, RandomGenerator rand) {
+		for(int i=0; i<out.length; ++i) {
+			out[i] = interpolateInverseCDF(rand.nextDouble());
+		}
+	}
+
+	/***
+	 * Probability density read from binned data, declared as a named class (rather than an anonymous one) so that
+	 * the Pdf can be serialised along with the rest of the simulation state
+	 */
+	private static class BinnedDensity implements DoubleUnaryOperator, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final BinnedDataDouble data;
+
+		BinnedDensity(BinnedDataDouble data) { this.data = data; }
+
+		public double applyAsDouble(double operand) {
+			return data.getBinAt(operand)/data.getBinWidth();
+		}
 	}
 
 	DoubleUnaryOperator				pdf;				// function that gives the pdf
 	public double					start;				// lowest value of x that has a non-zero probability
 	public double					end;				// highest value of x that has a non-zero probability
-	double []						inverseCDF;			// pre-computed equi-spaced points on the inverse CDF including 0 and 1
-	double 							dx;					// dx between samples
-	int								nSamples;			// number of sample	points on the CDF
+	double []						cdfKnots;			// cumulative probabilities at the knots of the inverse CDF, from 0 to 1
+	double []						xKnots;				// values of x at the knots of the inverse CDF, from start to end
+	int								nSamples;			// number of knots of the inverse CDF
 	static final int				DEFAULT_CDF_SAMPLES = 100;
 }
@@ -1,5 +1,6 @@
 package utilities;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.TreeSet;
@@ -14,17 +15,23 @@ import java.util.TreeSet;
  *     that no other elements at xySortedElements are X-less while being also Y-greater or equal.
  *     These elements are, at the same time, X-sorted and Y-sorted.
  *
+ * Both sets are kept up to date as elements are added and removed, so that each change costs a
+ * logarithmic number of operations (plus, when removing an uncovered element, a scan over the
+ * elements it was covering) instead of a full rebuild of uncoveredElements before each use.
+ *
  * Objects inserted into PriorityQueue2D must implement the interface PriorityQueue2D.XYComparator
  *
  * @author daniel, Adrian Carro, Gennaro Catapano
  *
  *************************************************************************************************/
-public class PriorityQueue2D<E> implements Iterable<E> {
+public class PriorityQueue2D<E> implements Iterable<E>, Serializable {
 
 	//------------------//
 	//----- Fields -----//
 	//------------------//
 
+	private static final long serialVersionUID = 1L;
+
 	private TreeSet<E>       	xySortedElements; // X-sorted set of elements with reverse Y-sorting for equal X
 	private TreeSet<E>          uncoveredElements; // X-sorted set of uncovered elements
 	private XYComparator<E>     comparator;
@@ -66,7 +73,9 @@ public class PriorityQueue2D<E> implements Iterable<E> {
 	 * Class to encapsulate the XYCompare method at XYComparator such that it can be passed as an argument to the
 	 * TreeSet constructor
 	 */
-	public class XYComparatorClass implements Comparator<E> {
+	public class XYComparatorClass implements Comparator<E>, Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public int compare(E arg0, E arg1) { return comparator.XYCompare(arg0, arg1); }
 	}
 
@@ -74,7 +83,9 @@ public class PriorityQueue2D<E> implements Iterable<E> {
      * Class to encapsulate the XCompare method at XYComparator such that it can be passed as an argument to the
      * TreeSet constructor
      */
-    public class XComparatorClass implements Comparator<E> {
+    public class XComparatorClass implements Comparator<E>, Serializable {
+        private static final long serialVersionUID = 1L;
+
         public int compare(E arg0, E arg1) { return comparator.XCompare(arg0, arg1); }
     }
 
@@ -108,18 +119,53 @@ public class PriorityQueue2D<E> implements Iterable<E> {
 	//-------------------//
 
 	/**
-	 * Adds the new element to the XY-sorted TreeSet, xySortedElements
+	 * Adds the new element to the XY-sorted TreeSet, xySortedElements, and, if it is not covered by any other element,
+	 * to the uncoveredElements TreeSet, removing any uncovered elements it covers
 	 *
 	 * @param element Object to be added
 	 */
-
 	public void add(E element) {
 		// Add element to the XY-sorted TreeSet
-		xySortedElements.add(element);
+		if (!xySortedElements.add(element)) return;
+		// Find the last uncovered element preceding the new one in XY order, i.e., the Y-greatest among all the
+		// elements preceding it. Note that an uncovered element with the same X as the new one may follow it in XY
+		// order (if it is Y-less or has a larger Id), in which case the previous uncovered element is needed
+		E previous = uncoveredElements.floor(element);
+		if (previous != null && comparator.XYCompare(element, previous) < 0) {
+			previous = uncoveredElements.lower(element);
+		}
+		// If the new element is not strictly Y-greater than that element, then it is covered and nothing else changes
+		if (previous != null && comparator.YCompare(element, previous) <= 0) return;
+		// Otherwise, the new element covers any following uncovered elements which are not strictly Y-greater than it
+		E next = uncoveredElements.ceiling(element);
+		while (next != null && comparator.YCompare(next, element) <= 0) {
+			uncoveredElements.remove(next);
+			next = uncoveredElements.higher(next);
+		}
+		uncoveredElements.add(element);
 	}
 
 	/**
-	 * Fill uncoveredElements TreeSet from the xySortedElements TreeSet
+	 * Adds the new element to the XY-sorted TreeSet, xySortedElements, only, leaving uncoveredElements out of date until
+	 * the next call to sortPriorities
+	 *
+	 * @param element Object to be added
+	 */
+	public void addUnsorted(E element) { xySortedElements.add(element); }
+
+	/**
+	 * Removes element from the XY-sorted TreeSet, xySortedElements, only, leaving uncoveredElements out of date until
+	 * the next call to sortPriorities. This allows changing the orderings of a batch of elements by removing them, then
+	 * changing them, then adding them back, with a single rebuild of uncoveredElements at the end
+	 *
+	 * @param element Element to remove
+	 */
+	public void removeUnsorted(E element) { xySortedElements.remove(element); }
+
+	/**
+	 * Rebuild the uncoveredElements TreeSet from the xySortedElements TreeSet. This is only needed if the orderings of
+	 * elements already in the queue have changed, or if elements have been added or removed without sorting, since add
+	 * and remove keep uncoveredElements up to date
 	 */
 	public void sortPriorities() {
 		E element;
@@ -174,8 +220,11 @@ public class PriorityQueue2D<E> implements Iterable<E> {
 	 * @param element Element to remove (must be an uncovered element)
 	 */
 	private void removeFromUncovered(E element) {
-		// If element is not uncovered, do nothing, otherwise, remove element from uncoveredElements and continue
-		if (!uncoveredElements.remove(element)) return;
+		// If element is not uncovered, do nothing, otherwise, remove element from uncoveredElements and continue. Note
+		// that, since uncoveredElements is only X-sorted, a covered element may share its X with an uncovered one
+		E uncovered = uncoveredElements.ceiling(element);
+		if (uncovered == null || comparator.XYCompare(uncovered, element) != 0) return;
+		uncoveredElements.remove(element);
 		// If it was the last element within the PriorityQueue2D, do nothing, otherwise, continue
 		if(xySortedElements.size() == 0) return;
 		// Find the next uncovered element, i.e., the least uncovered element strictly greater than the removed element
@@ -0,0 +1,283 @@
+package utilities;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to hold the last windowSize values added, dropping the oldest one whenever a new one is
+ * added to a full window, and to compute order statistics of them, i.e., their median and the
+ * mean of those above it, without sorting them. Values are kept in a ring buffer, in order of
+ * arrival, and each slot of the buffer is also a node of a treap (a binary search tree balanced
+ * by random priorities) ordered by value, each node holding the size and the sum of its subtree.
+ * Thus, adding a value, and any of the statistics, costs O(log n) rather than the O(n log n) of
+ * copying and sorting the whole window.
+ *
+ * The median is computed as by commons-math Median, i.e., as the middle value or, for an even
+ * number of values, as the midpoint of the two middle ones. Sums are taken over subtrees, rather
+ * than in order of arrival, so means may differ from those of DescriptiveStatistics by rounding.
+ * Priorities are drawn from a generator of their own, so that results are reproducible and no
+ * draws are taken from the random number generator of the model.
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class SlidingWindowStatistics implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int    NIL = -1; // Index of an empty subtree
+
+    private int                 windowSize; // Maximum number of values held
+
+    // Nodes of the treap, indexed by slot of the ring buffer
+    private double[]            values;
+    private int[]               left;
+    private int[]               right;
+    private int[]               priority;
+    private int[]               subtreeSize;
+    private double[]            subtreeSum;
+
+    private int                 root = NIL;
+    private int                 n; // Number of values held
+    private int                 oldest; // Slot of the oldest value, to be replaced by the next one once the window is full
+    private long                priorityState; // State of the generator of priorities
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param windowSize Maximum number of values to hold, the oldest ones being dropped first
+     */
+    public SlidingWindowStatistics(int windowSize) {
+        this.windowSize = windowSize;
+        int capacity = Math.min(windowSize, 64);
+        values = new double[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        priority = new int[capacity];
+        subtreeSize = new int[capacity];
+        subtreeSum = new double[capacity];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Add a value to the window, dropping the oldest one if the window is full
+     */
+    public void addValue(double value) {
+        int slot;
+        if (n == windowSize) {
+            slot = oldest;
+            root = remove(root, slot);
+            oldest = (oldest + 1)%windowSize;
+        } else {
+            if (n == values.length) grow();
+            slot = n++;
+        }
+        values[slot] = value;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        priority[slot] = nextPriority();
+        subtreeSize[slot] = 1;
+        subtreeSum[slot] = value;
+        root = insert(root, slot);
+    }
+
+    /**
+     * Remove all values from the window
+     */
+    public void clear() {
+        root = NIL;
+        n = 0;
+        oldest = 0;
+    }
+
+    /**
+     * @return Number of values held
+     */
+    public long getN() { return n; }
+
+    public int getWindowSize() { return windowSize; }
+
+    /**
+     * @return Values held, in order of arrival
+     */
+    public double[] getValues() {
+        double[] result = new double[n];
+        int nFirst = Math.min(n, values.length - oldest);
+        System.arraycopy(values, oldest, result, 0, nFirst);
+        System.arraycopy(values, 0, result, nFirst, n - nFirst);
+        return result;
+    }
+
+    /**
+     * @return Sum of the values held
+     */
+    public double getSum() { return sumOf(root); }
+
+    /**
+     * @return Mean of the values held, or NaN if there are none
+     */
+    public double getMean() { return (n > 0) ? getSum()/n : Double.NaN; }
+
+    /**
+     * @return Median of the values held, or NaN if there are none
+     */
+    public double getMedian() {
+        if (n == 0) return Double.NaN;
+        if (n%2 == 1) return select((n - 1)/2);
+        double lower = select(n/2 - 1);
+        double upper = select(n/2);
+        return lower + 0.5*(upper - lower);
+    }
+
+    /**
+     * @return Mean of the values held strictly above their median, NaN if there are none
+     */
+    public double getMeanAboveMedian() {
+        double median = getMedian();
+        double totalAboveMedian = 0.0;
+        int countAboveMedian = 0;
+        int t = root;
+        while (t != NIL) {
+            if (values[t] > median) {
+                totalAboveMedian += values[t] + sumOf(right[t]);
+                countAboveMedian += 1 + sizeOf(right[t]);
+                t = left[t];
+            } else {
+                t = right[t];
+            }
+        }
+        return totalAboveMedian/countAboveMedian;
+    }
+
+    /**
+     * @return Value of rank k, starting at 0, in increasing order of value
+     */
+    private double select(int k) {
+        int t = root;
+        while (true) {
+            int nLeft = sizeOf(left[t]);
+            if (k < nLeft) {
+                t = left[t];
+            } else if (k > nLeft) {
+                k -= nLeft + 1;
+                t = right[t];
+            } else {
+                return values[t];
+            }
+        }
+    }
+
+    /**
+     * Insert node x into the subtree rooted at t
+     *
+     * @return New root of the subtree
+     */
+    private int insert(int t, int x) {
+        if (t == NIL) return x;
+        if (precedes(x, t)) {
+            left[t] = insert(left[t], x);
+            if (priority[left[t]] > priority[t]) return rotateRight(t);
+        } else {
+            right[t] = insert(right[t], x);
+            if (priority[right[t]] > priority[t]) return rotateLeft(t);
+        }
+        update(t);
+        return t;
+    }
+
+    /**
+     * Remove node x from the subtree rooted at t, rotating it down until it has at most one child
+     *
+     * @return New root of the subtree
+     */
+    private int remove(int t, int x) {
+        if (t == x) {
+            if (left[t] == NIL) return right[t];
+            if (right[t] == NIL) return left[t];
+            int r;
+            if (priority[left[t]] > priority[right[t]]) {
+                r = rotateRight(t);
+                right[r] = remove(t, x);
+            } else {
+                r = rotateLeft(t);
+                left[r] = remove(t, x);
+            }
+            update(r);
+            return r;
+        }
+        if (precedes(x, t)) {
+            left[t] = remove(left[t], x);
+        } else {
+            right[t] = remove(right[t], x);
+        }
+        update(t);
+        return t;
+    }
+
+    private int rotateRight(int t) {
+        int l = left[t];
+        left[t] = right[l];
+        right[l] = t;
+        update(t);
+        update(l);
+        return l;
+    }
+
+    private int rotateLeft(int t) {
+        int r = right[t];
+        right[t] = left[r];
+        left[r] = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    /**
+     * Recompute the size and the sum of the subtree rooted at t from those of its children
+     */
+    private void update(int t) {
+        subtreeSize[t] = 1 + sizeOf(left[t]) + sizeOf(right[t]);
+        subtreeSum[t] = sumOf(left[t]) + values[t] + sumOf(right[t]);
+    }
+
+    /**
+     * Nodes are ordered by value and, for equal values, by slot, so that every node has a unique position
+     */
+    private boolean precedes(int a, int b) {
+        int c = Double.compare(values[a], values[b]);
+        return (c < 0) || (c == 0 && a < b);
+    }
+
+    private int sizeOf(int t) { return (t == NIL) ? 0 : subtreeSize[t]; }
+
+    private double sumOf(int t) { return (t == NIL) ? 0.0 : subtreeSum[t]; }
+
+    /**
+     * Next priority from a SplitMix64 sequence
+     */
+    private int nextPriority() {
+        long z = (priorityState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+        return (int)(z ^ (z >>> 31));
+    }
+
+    private void grow() {
+        int capacity = Math.min(windowSize, 2*values.length);
+        values = Arrays.copyOf(values, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        subtreeSize = Arrays.copyOf(subtreeSize, capacity);
+        subtreeSum = Arrays.copyOf(subtreeSum, capacity);
+    }
+}
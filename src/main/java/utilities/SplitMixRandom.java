@@ -0,0 +1,87 @@
+package utilities;
+
+import org.apache.commons.math3.random.BitsStreamGenerator;
+
+/**************************************************************************************************
+ * Counter-based random number generator (SplitMix64), whose whole state is a single long that is
+ * incremented by a fixed odd constant at each draw and scrambled into the output. Any key, such as
+ * the combination of a per-step seed and an agent id, can be turned into an independent stream in
+ * constant time, so that each agent can draw from its own stream, whatever the thread or the order
+ * in which agents are processed, and still give bit-reproducible results.
+ *
+ * The remaining methods (nextInt(n), nextGaussian, etc.) are those of BitsStreamGenerator, built
+ * on top of next(bits).
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class SplitMixRandom extends BitsStreamGenerator {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long   GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // Increment of the counter at each draw
+
+    private long                state;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    public SplitMixRandom(long seed) { setSeed(seed); }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Reset the generator to the start of the stream identified by a seed and a key, such as an agent id
+     */
+    public void setStream(long seed, int key) {
+        state = mix64(seed + mix64(GOLDEN_GAMMA*(key + 1L)));
+        clear();
+    }
+
+    @Override
+    public void setSeed(int seed) { setSeed((long)seed); }
+
+    @Override
+    public void setSeed(int[] seed) {
+        long s = 0L;
+        for (int x : seed) s = mix64(s + GOLDEN_GAMMA + x);
+        setSeed(s);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = mix64(seed);
+        clear();
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * Uniform double in [0, 1), taking the 53 highest bits of a single draw
+     */
+    @Override
+    public double nextDouble() { return (nextLong() >>> 11)*0x1.0p-53; }
+
+    @Override
+    protected int next(int bits) { return (int)(nextLong() >>> (64 - bits)); }
+
+    /**
+     * Finalisation function of MurmurHash3, variant 13 by David Stafford, as used by SplitMix64
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,121 @@
+package utilities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**************************************************************************************************
+ * Class to run the parallel phases of a time step, i.e., loops over independent items (such as
+ * bids or households), on a bounded pool of threads. The range of items is split into contiguous
+ * chunks, one per thread, and the calling thread waits until every chunk is done. With a single
+ * thread, or with too few items to be worth splitting, the loop runs on the calling thread.
+ *
+ * The threads are daemon threads, created the first time they are needed, so that a pool which is
+ * never shut down does not keep the JVM alive, and they are not part of any snapshot of the
+ * simulation state.
+ *
+ * @author Adrian Carro, Gennaro Catapano
+ *
+ *************************************************************************************************/
+public class WorkerPool implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private int                         nThreads; // Maximum number of threads running chunks at the same time
+    private transient ExecutorService   executor;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param nThreads Maximum number of threads to use, any value below 2 meaning all loops run sequentially
+     */
+    public WorkerPool(int nThreads) { this.nThreads = Math.max(1, nThreads); }
+
+    //----------------------//
+    //----- Subclasses -----//
+    //----------------------//
+
+    /**
+     * Interface for the body of a loop over a contiguous range of items, which must only write to the state of the
+     * items within that range (or to buffers owned by the range)
+     */
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Run a loop over the items [0, n), split into at most nThreads contiguous chunks of at least minChunkSize items
+     *
+     * @param n Number of items
+     * @param minChunkSize Minimum number of items for a chunk to be worth running on its own thread
+     * @param task Body of the loop, called once per chunk
+     */
+    public void run(int n, int minChunkSize, final RangeTask task) {
+        int nChunks = Math.min(nThreads, n/Math.max(1, minChunkSize));
+        if (nChunks < 2) {
+            task.run(0, n);
+            return;
+        }
+        if (executor == null) executor = Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory());
+        List<Future<Void>> futures = new ArrayList<>(nChunks);
+        for (int c = 0; c < nChunks; c++) {
+            final int from = (int)((long)n*c/nChunks);
+            final int to = (int)((long)n*(c + 1)/nChunks);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    task.run(from, to);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for parallel workers", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Parallel worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the threads of this pool, if any, which will be created again if the pool is used afterwards
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getnThreads() { return nThreads; }
+
+    /**
+     * Thread factory creating daemon threads
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}